@@ -0,0 +1,122 @@
+package candy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the deterministic inputs shared by the benchmarks.
+ * <p>
+ * Descriptions are two to six words drawn from {@link #VOCABULARY} with a skewed distribution, so a few
+ * words appear in most tasks and the rest are rare, as in real to-do lists. About 60% of tasks are todos,
+ * 25% deadlines and 15% events, and about a third of them are done.
+ */
+final class BenchmarkData {
+    /** Words ordered from most to least frequent. */
+    static final String[] VOCABULARY = {
+        "read", "book", "email", "meeting", "project", "report", "buy", "call", "review", "plan",
+        "write", "fix", "team", "client", "weekly", "lecture", "tutorial", "submit", "lab", "quiz",
+        "groceries", "dentist", "gym", "laundry", "budget", "invoice", "slides", "draft", "proposal", "homework",
+        "library", "birthday", "flight", "hotel", "passport", "renew", "insurance", "taxes", "backup", "laptop",
+        "garden", "paint", "recipe", "concert", "tickets", "museum", "volunteer", "mentor", "interview", "resume",
+        "portfolio", "workshop", "hackathon", "deploy", "refactor", "benchmark", "prototype", "sketch", "podcast",
+        "zucchini"
+    };
+
+    /** Command mix used when {@code text-ui-test/input.txt} cannot be found. */
+    private static final String[] DEFAULT_COMMANDS = {
+        "list", "todo borrow book", "deadline return book /by Sunday", "event meeting /from Mon 2pm /to 4pm",
+        "list", "mark 2", "list", "unmark 2", "list", "delete 3", "list", "delete 1", "list"
+    };
+
+    private static final LocalDate FIRST_DUE_DATE = LocalDate.of(2025, 1, 1);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates a list of tasks.
+     *
+     * @param count Number of tasks.
+     * @param seed Random seed, so runs compare like with like.
+     * @return Tasks in generation order.
+     */
+    static List<Task> tasks(int count, long seed) {
+        Random random = new Random(seed);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(20);
+            Task task;
+            if (kind < 12) {
+                task = new Todo(description(random));
+            } else if (kind < 17) {
+                task = new Deadline(description(random), FIRST_DUE_DATE.plusDays(random.nextInt(1000)));
+            } else {
+                task = new Event(description(random), "Mon " + (1 + random.nextInt(12)) + "pm", "Fri 5pm");
+            }
+            if (random.nextInt(3) == 0) {
+                task = task.withDone(true);
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Generates a task list holding {@link #tasks(int, long)}.
+     */
+    static TaskList taskList(int count, long seed) {
+        TaskList list = new TaskList();
+        for (Task task : tasks(count, seed)) {
+            list.add(task);
+        }
+        return list;
+    }
+
+    /**
+     * Generates one description of two to six words.
+     */
+    static String description(Random random) {
+        int words = 2 + random.nextInt(5);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            int index = (int) (VOCABULARY.length * Math.pow(random.nextDouble(), 3));
+            sb.append(VOCABULARY[index]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the commands of {@code text-ui-test/input.txt} without the final {@code bye}.
+     * Some of them predate date validation and are rejected by the parser, which is kept as part of the mix.
+     *
+     * @return Commands in file order.
+     */
+    static List<String> commandMix() {
+        Path input = Paths.get("text-ui-test", "input.txt");
+        List<String> commands = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(input, StandardCharsets.UTF_8)) {
+                String command = line.trim();
+                if (!command.isEmpty() && !command.equals("bye")) {
+                    commands.add(command);
+                }
+            }
+        } catch (IOException e) {
+            commands.clear();
+        }
+        if (commands.isEmpty()) {
+            commands.addAll(List.of(DEFAULT_COMMANDS));
+        }
+        return commands;
+    }
+}
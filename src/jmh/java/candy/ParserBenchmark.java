@@ -0,0 +1,96 @@
+package candy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Parser#parse(String)} on user commands and {@link Parser#parseLine(String)} on save-file lines.
+ * Both report the average time per command or line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+    private static final int LINE_COUNT = 10_000;
+
+    /** Well-formed commands covering every argument shape of the command grammar. */
+    private static final String[] VALID_COMMANDS = {
+        "todo read book",
+        "deadline return book /by 2026-01-20",
+        "event project meeting /from 2026-01-20 /to 2026-01-22",
+        "mark 2",
+        "delete #42",
+        "unmark 1,4,9-20",
+        "list 3 --page-size 50",
+        "find book --page 2 --page-size 20",
+    };
+
+    private List<String> commands;
+    private List<String> lines;
+
+    /**
+     * Loads the command mix and renders a batch of save-file lines.
+     */
+    @Setup
+    public void setUp() {
+        commands = new ArrayList<>(BenchmarkData.commandMix());
+        commands.add("find book");
+        commands.add("find project --page 2 --page-size 50");
+        commands.add("delete 3-500");
+        commands.add("mark 1,4,9-20");
+        commands.add("list 3 --page-size 50");
+        commands.add("sort");
+
+        lines = new ArrayList<>(LINE_COUNT);
+        for (Task task : BenchmarkData.tasks(LINE_COUNT, 1)) {
+            lines.add(Parser.toLine(task));
+        }
+    }
+
+    /**
+     * Parses every command of the mix once. Invalid commands in the mix exercise the error path.
+     */
+    @Benchmark
+    public void parseCommandMix(Blackhole blackhole) {
+        for (String command : commands) {
+            try {
+                blackhole.consume(Parser.parse(command));
+            } catch (CandyException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    /**
+     * Parses well-formed commands only, so the score is per command and free of exception costs.
+     */
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void parseValidCommands(Blackhole blackhole) throws CandyException {
+        for (String command : VALID_COMMANDS) {
+            blackhole.consume(Parser.parse(command));
+        }
+    }
+
+    /**
+     * Parses save-file lines; the score is per line.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public void parseLine(Blackhole blackhole) throws CandyException {
+        for (String line : lines) {
+            blackhole.consume(Parser.parseLine(line));
+        }
+    }
+}
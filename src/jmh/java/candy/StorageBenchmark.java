@@ -0,0 +1,119 @@
+package candy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures full saves and loads of the data file in the default {@link Durability#SYNC} mode,
+ * including the fsync each save performs, for each format with and without compression.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StorageBenchmark {
+
+    /**
+     * A data file of a given size, shared by every benchmark in this class.
+     */
+    @State(Scope.Benchmark)
+    public static class DataFile {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int size;
+
+        Path directory;
+        String path;
+        TaskList tasks;
+        List<String> lines;
+
+        /**
+         * Generates the tasks and a temporary directory to write them to.
+         */
+        @Setup
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("candy-jmh");
+            path = directory.resolve("candy.txt").toString();
+            tasks = BenchmarkData.taskList(size, 1);
+            lines = tasks.toLines();
+        }
+
+        /**
+         * Deletes the data file and its directory.
+         */
+        @TearDown
+        public void tearDown() throws IOException {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * A data file that already exists in a given format, plain or compressed, for the save and load benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class FormattedFile {
+        @Param({"TEXT", "BINARY"})
+        public StorageFormat format;
+
+        @Param({"false", "true"})
+        public boolean isCompressed;
+
+        Storage storage;
+
+        /**
+         * Writes the data file once so {@link #load(DataFile, FormattedFile)} has something to read,
+         * and prints its size so the formats can be compared by bytes written as well as by time.
+         */
+        @Setup
+        public void setUp(DataFile file) throws IOException {
+            StorageConfig config = new StorageConfig();
+            config.format = format;
+            config.isCompressed = isCompressed;
+            storage = new Storage(file.path, config);
+            storage.save(file.tasks);
+            System.out.println("Data file: " + Files.size(Path.of(file.path)) + " bytes ("
+                    + format + (isCompressed ? ", compressed" : "") + ", " + file.size + " tasks)");
+        }
+    }
+
+    /**
+     * Writes pre-rendered lines with {@link Storage#saveLines(List)}.
+     */
+    @Benchmark
+    public void saveLines(DataFile file) {
+        new Storage(file.path).saveLines(file.lines);
+    }
+
+    /**
+     * Saves the task list in the configured format, compressing it if configured.
+     */
+    @Benchmark
+    public void save(DataFile file, FormattedFile formatted) {
+        formatted.storage.save(file.tasks);
+    }
+
+    /**
+     * Loads the data file into a fresh task list, detecting its format and compression.
+     */
+    @Benchmark
+    public TaskList load(DataFile file, FormattedFile formatted) throws IOException, CandyException {
+        TaskList tasks = new TaskList();
+        formatted.storage.loadTasks(tasks);
+        return tasks;
+    }
+}
@@ -0,0 +1,149 @@
+package candy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link TaskList} queries and the end-to-end command mix over lists of growing size.
+ * <p>
+ * The command mix writes through a journaled {@link Storage} with {@link Durability#PERIODIC} and no
+ * compaction, so it measures parsing, execution and rendering rather than disk speed;
+ * {@link StorageBenchmark} covers saving and loading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskListBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private TaskList tasks;
+    private TaskList mixTasks;
+    private Ui ui;
+    private Storage storage;
+    private Path directory;
+    private List<ParsedCommand> mix;
+
+    /**
+     * Builds the task list and its lazy indexes, so the first measured call does not pay for them.
+     */
+    @Setup
+    public void setUp() throws IOException, CandyException {
+        tasks = BenchmarkData.taskList(size, 1);
+        tasks.find("book");
+        tasks.formatSortedForDisplay();
+        mixTasks = BenchmarkData.taskList(size, 1);
+
+        directory = Files.createTempDirectory("candy-jmh");
+        StorageConfig config = new StorageConfig();
+        config.isJournaled = true;
+        config.journalCompactionBytes = Long.MAX_VALUE;
+        config.durability = Durability.PERIODIC;
+        storage = new Storage(directory.resolve("candy.txt").toString(), config);
+        ui = new Ui();
+
+        mix = new ArrayList<>();
+        int sizeChange = 0;
+        for (String command : BenchmarkData.commandMix()) {
+            try {
+                ParsedCommand parsed = Parser.parse(command);
+                mix.add(parsed);
+                sizeChange += parsed.type == CommandType.DELETE ? -1 : isAdd(parsed.type) ? 1 : 0;
+            } catch (CandyException e) {
+                // Commands the parser rejects never reach execution.
+            }
+        }
+        for (; sizeChange < 0; sizeChange++) {
+            mix.add(Parser.parse("todo filler task"));
+        }
+    }
+
+    private static boolean isAdd(CommandType type) {
+        return type == CommandType.TODO || type == CommandType.DEADLINE || type == CommandType.EVENT;
+    }
+
+    /**
+     * Removes the journal written by the command mix.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.flush();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Finds a word that appears in most descriptions.
+     */
+    @Benchmark
+    public TaskList findCommonWord() {
+        return tasks.find("read");
+    }
+
+    /**
+     * Finds the rarest word, which the trigram index narrows to a few candidates.
+     */
+    @Benchmark
+    public TaskList findRareWord() {
+        return tasks.find("zucchini");
+    }
+
+    /**
+     * Ranks the ten tasks closest to a misspelled, reordered query.
+     */
+    @Benchmark
+    public List<SearchResult> searchWithTypo() {
+        return tasks.search("zuchini book", 10);
+    }
+
+    /**
+     * Renders the categorized {@code sort} output.
+     */
+    @Benchmark
+    public String formatSortedForDisplay() {
+        return tasks.formatSortedForDisplay();
+    }
+
+    /**
+     * Renders the full {@code list} output.
+     */
+    @Benchmark
+    public String formatForDisplay() {
+        return tasks.formatForDisplay();
+    }
+
+    /**
+     * Executes the commands of {@code text-ui-test/input.txt} once on a list of its own, since the mix
+     * gradually replaces the generated tasks. Extra todos added in {@link #setUp()} make up for its deletes,
+     * so the list keeps its size across invocations.
+     */
+    @Benchmark
+    public void commandMix(Blackhole blackhole) {
+        for (ParsedCommand command : mix) {
+            try {
+                blackhole.consume(command.execute(mixTasks, ui, storage));
+            } catch (CandyException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+}
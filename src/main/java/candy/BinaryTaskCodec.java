@@ -0,0 +1,346 @@
+package candy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the binary snapshot format.
+ * <p>
+ * Layout (all integers big-endian):
+ * <pre>
+ * int   magic    "CNDY"
+ * short version  2
+ * int   count    number of records
+ * long  seq      last journal record folded into this snapshot (0 if none)
+ * int   nextId   next free task ID
+ * count records:
+ *   byte   kind  bits 0-1: 0 todo, 1 deadline, 2 event; bit 6: wide date; bit 7: done
+ *   varint id    task ID minus the ID of the record before (or minus 0 for the first)
+ *   string description
+ *   deadline: int epoch day of the due date (long if the wide date bit is set)
+ *   event:    string from, string to
+ * </pre>
+ * Strings are a varint byte length followed by UTF-8 bytes. Version 1 snapshots, which have no
+ * {@code nextId} and no record IDs, are still read; their tasks get new IDs. Compared to the text format this avoids
+ * re-parsing type and done flags as text and dates with {@link LocalDate#parse(CharSequence)}.
+ */
+class BinaryTaskCodec {
+    static final int MAGIC = 0x434E4459;
+    static final short VERSION = 2;
+
+    /** Last version without task IDs. */
+    private static final short VERSION_WITHOUT_IDS = 1;
+
+    private static final int TODO = 0;
+    private static final int DEADLINE = 1;
+    private static final int EVENT = 2;
+    private static final int TYPE_MASK = 0x03;
+    private static final int WIDE_DATE_BIT = 0x40;
+    private static final int DONE_BIT = 0x80;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Most records the decoded list is sized for up front, since the count in the header is not trusted. */
+    private static final int MAX_PRESIZE = 64 * 1024;
+
+    /**
+     * Returns whether the given leading bytes of a file start with the binary magic number.
+     *
+     * @param head First bytes of the file.
+     * @param length Number of valid bytes in {@code head}.
+     * @return true if the file is in the binary format.
+     */
+    static boolean hasMagic(byte[] head, int length) {
+        return length >= 4
+                && ((head[0] & 0xff) << 24 | (head[1] & 0xff) << 16 | (head[2] & 0xff) << 8 | (head[3] & 0xff))
+                == MAGIC;
+    }
+
+    /**
+     * Writes the given tasks as a binary snapshot.
+     *
+     * @param out Stream to write to; not closed.
+     * @param tasks Tasks to write, in list order, which is ascending ID order.
+     * @param nextId Next free task ID.
+     * @param seq Last journal record included in the snapshot.
+     * @throws IOException If writing fails.
+     */
+    static void write(OutputStream out, List<Task> tasks, int nextId, long seq) throws IOException {
+        Encoder encoder = new Encoder(out);
+        encoder.writeInt(MAGIC);
+        encoder.writeShort(VERSION);
+        encoder.writeInt(tasks.size());
+        encoder.writeLong(seq);
+        encoder.writeInt(nextId);
+
+        int previousId = 0;
+        for (Task listed : tasks) {
+            Task task = listed.materialize();
+            int doneBit = task.isDone() ? DONE_BIT : 0;
+            int id = listed.getId();
+            if (task instanceof Deadline) {
+                Deadline deadline = (Deadline) task;
+                long epochDay = deadline.getByTime().toEpochDay();
+                boolean isWide = epochDay != (int) epochDay;
+                encoder.writeByte(DEADLINE | doneBit | (isWide ? WIDE_DATE_BIT : 0));
+                encoder.writeVarint(id - previousId);
+                encoder.writeString(deadline.getDescription());
+                if (isWide) {
+                    encoder.writeLong(epochDay);
+                } else {
+                    encoder.writeInt((int) epochDay);
+                }
+            } else if (task instanceof Event) {
+                Event event = (Event) task;
+                encoder.writeByte(EVENT | doneBit);
+                encoder.writeVarint(id - previousId);
+                encoder.writeString(event.getDescription());
+                encoder.writeString(event.getFromTime());
+                encoder.writeString(event.getToTime());
+            } else {
+                encoder.writeByte(TODO | doneBit);
+                encoder.writeVarint(id - previousId);
+                encoder.writeString(task.getDescription());
+            }
+            previousId = id;
+        }
+        encoder.flush();
+    }
+
+    /**
+     * Reads a binary snapshot into the given task list.
+     *
+     * @param in Stream positioned at the start of the snapshot; not closed.
+     * @param tasks Task list to add the decoded tasks to, which also reserves the IDs of tasks deleted before
+     *     the snapshot; nothing is added if the snapshot is unreadable.
+     * @return Last journal record included in the snapshot.
+     * @throws IOException If reading fails or the data is not a supported snapshot.
+     */
+    static long read(InputStream in, TaskList tasks) throws IOException {
+        Decoder decoder = new Decoder(in);
+        if (decoder.readInt() != MAGIC) {
+            throw new IOException("Not a Candy binary snapshot.");
+        }
+        int version = decoder.readShort();
+        if (version != VERSION && version != VERSION_WITHOUT_IDS) {
+            throw new IOException("Unsupported snapshot version " + version + ".");
+        }
+        int count = decoder.readInt();
+        if (count < 0) {
+            throw new IOException("Malformed record count " + count + " in snapshot.");
+        }
+        long seq = decoder.readLong();
+        boolean hasIds = version != VERSION_WITHOUT_IDS;
+        int nextId = hasIds ? decoder.readInt() : 1;
+
+        // A corrupt count ends in an EOFException once the records run out, not in a huge allocation.
+        List<Task> decoded = new ArrayList<>(Math.min(count, MAX_PRESIZE));
+        int id = 0;
+        for (int i = 0; i < count; i++) {
+            int kind = decoder.readByte();
+            if (hasIds) {
+                id += decoder.readVarint();
+            }
+            String description = decoder.readString();
+            boolean isDone = (kind & DONE_BIT) != 0;
+            Task task;
+            switch (kind & TYPE_MASK) {
+            case TODO:
+                task = new Todo(description, isDone);
+                break;
+            case DEADLINE:
+                long epochDay = (kind & WIDE_DATE_BIT) != 0 ? decoder.readLong() : decoder.readInt();
+                task = new Deadline(description, LocalDate.ofEpochDay(epochDay), isDone);
+                break;
+            case EVENT:
+                task = new Event(description, decoder.readString(), decoder.readString(), isDone);
+                break;
+            default:
+                throw new IOException("Unknown task kind " + kind + " in record " + (i + 1) + ".");
+            }
+            task.setId(id);
+            decoded.add(task);
+        }
+        tasks.addAll(decoded);
+        tasks.reserveIdsBelow(nextId);
+        return seq;
+    }
+
+    /**
+     * Buffers primitive writes into one byte array so the stream sees large writes only.
+     */
+    private static class Encoder {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+
+        private Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        private void ensure(int length) throws IOException {
+            if (position + length > buffer.length) {
+                flush();
+            }
+        }
+
+        private void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeShort(int value) throws IOException {
+            ensure(2);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer[position++] = (byte) (value >>> 24);
+            buffer[position++] = (byte) (value >>> 16);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeLong(long value) throws IOException {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void writeVarint(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            if (bytes.length > buffer.length - position) {
+                flush();
+                if (bytes.length > buffer.length) {
+                    out.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Reads primitives out of a refillable byte array instead of one stream call per field.
+     */
+    private static class Decoder {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+
+        private Decoder(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Makes sure at least {@code length} unread bytes, at most the buffer size, are in the buffer.
+         */
+        private void require(int length) throws IOException {
+            if (limit - position >= length) {
+                return;
+            }
+            int remaining = limit - position;
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            position = 0;
+            limit = remaining;
+            while (limit < length) {
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    throw new EOFException("Snapshot ended unexpectedly.");
+                }
+                limit += read;
+            }
+        }
+
+        private int readByte() throws IOException {
+            require(1);
+            return buffer[position++] & 0xff;
+        }
+
+        private int readShort() throws IOException {
+            require(2);
+            int value = (buffer[position] & 0xff) << 8 | (buffer[position + 1] & 0xff);
+            position += 2;
+            return value;
+        }
+
+        private int readInt() throws IOException {
+            require(4);
+            int value = (buffer[position] & 0xff) << 24 | (buffer[position + 1] & 0xff) << 16
+                    | (buffer[position + 2] & 0xff) << 8 | (buffer[position + 3] & 0xff);
+            position += 4;
+            return value;
+        }
+
+        private long readLong() throws IOException {
+            return (long) readInt() << 32 | (readInt() & 0xffffffffL);
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed length in snapshot.");
+        }
+
+        private String readString() throws IOException {
+            int length = readVarint();
+            if (length < 0) {
+                throw new IOException("Malformed length in snapshot.");
+            }
+            if (length > buffer.length) {
+                return readLargeString(length);
+            }
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        /**
+         * Reads a string longer than the buffer. The stream is read in steps, so a corrupt length
+         * fails with an {@link EOFException} once the data runs out instead of allocating it up front.
+         */
+        private String readLargeString(int length) throws IOException {
+            int buffered = limit - position;
+            byte[] rest = in.readNBytes(length - buffered);
+            if (rest.length < length - buffered) {
+                throw new EOFException("Snapshot ended unexpectedly.");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, position, bytes, 0, buffered);
+            System.arraycopy(rest, 0, bytes, buffered, rest.length);
+            position = limit;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
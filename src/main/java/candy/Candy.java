@@ -1,6 +1,15 @@
 package candy;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The main entry point of the Candy task manager application.
@@ -12,12 +21,25 @@ import java.time.LocalDate;
  * </ul>
  * The core logic is shared: user input is parsed by {@link Parser} into a {@link ParsedCommand},
  * then executed to produce a message for display.
+ * <p>
+ * Every command is timed into {@link Metrics}; the {@code stats} command shows the numbers, and
+ * {@code -Dcandy.metrics.file=<path>} writes them to a file on {@code bye}.
  */
 public class Candy {
+    /** Skipped data file lines that are described one by one at startup; the rest are only counted. */
+    private static final int MAX_PROBLEMS_SHOWN = 5;
+
+    /** Most changes {@code undo} can take back in a row. */
+    private static final int UNDO_DEPTH = Integer.getInteger("candy.undo.depth", 50);
+
     private final Ui ui;
+    private final Metrics metrics;
     private final Storage storage;
     private final TaskList tasks;
 
+    /** Held while a server session runs a command that changes tasks; see {@link #serve(String, Appendable)}. */
+    private final Object commandLock = new Object();
+
     /**
      * Creates a Candy application using the given storage file path.
      * Loads existing tasks from the storage file if available.
@@ -25,10 +47,23 @@ public class Candy {
      * @param filePath Path to the save file used for loading and saving tasks.
      */
     public Candy(String filePath) {
+        this(filePath, StorageConfig.fromSystemProperties());
+    }
+
+    /**
+     * Creates a Candy application using the given storage file path and storage settings.
+     * Loads existing tasks from the storage file if available.
+     *
+     * @param filePath Path to the save file used for loading and saving tasks.
+     * @param config Settings controlling how changes are persisted.
+     */
+    public Candy(String filePath, StorageConfig config) {
         this.ui = new Ui();
-        this.storage = new Storage(filePath);
+        this.metrics = new Metrics();
+        this.storage = new Storage(filePath, config, metrics);
         this.tasks = new TaskList();
         loadFromFile();
+        tasks.setHistoryLimit(UNDO_DEPTH);
     }
 
     /**
@@ -41,17 +76,94 @@ public class Candy {
 
     /**
      * Launches Candy in terminal mode.
+     * <p>
+     * {@code --convert <source> <target> [text|binary]} instead rewrites a data file in the given format
+     * (binary by default) and exits. {@code --server [port]} serves the task list to network clients
+     * (see {@link CandyServer}) until the process is stopped. {@code --script <file> [--checkpoint n]} runs
+     * the commands in a file through {@link #executeBatch(Iterable, Appendable, int)} and exits.
      *
-     * @param args Command line arguments (not used).
+     * @param args Command line arguments.
      */
     public static void main(String[] args) {
-        new Candy("data/candy.txt").run();
+        if (args.length >= 3 && args[0].equals("--convert")) {
+            convert(args);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--script")) {
+            runScript(args);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--server")) {
+            serve(args);
+            return;
+        }
+        Candy candy = new Candy("data/candy.txt");
+        candy.closeAtShutdown();
+        candy.run();
+    }
+
+    private static void serve(String[] args) {
+        try {
+            int port = args.length >= 2 ? Integer.parseInt(args[1]) : CandyServer.DEFAULT_PORT;
+            Candy candy = new Candy("data/candy.txt");
+            candy.closeAtShutdown();
+            CandyServer server = new CandyServer(candy, port);
+            System.out.println("Candy server listening on port " + server.getPort() + ".");
+            server.serve();
+        } catch (NumberFormatException e) {
+            System.out.println("Port must be a number: " + args[1]);
+        } catch (IOException e) {
+            System.out.println("Could not start server: " + e.getMessage());
+        }
+    }
+
+    private static void runScript(String[] args) {
+        int checkpointInterval = 0;
+        if (args.length >= 4 && args[2].equals("--checkpoint")) {
+            try {
+                checkpointInterval = Integer.parseInt(args[3]);
+            } catch (NumberFormatException e) {
+                System.out.println("Checkpoint interval must be a number: " + args[3]);
+                return;
+            }
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Could not read script " + args[1] + ": " + e.getMessage());
+            return;
+        }
+        Candy candy = new Candy("data/candy.txt");
+        PrintWriter out = candy.ui.getWriter();
+        try {
+            candy.executeBatch(lines, out, checkpointInterval);
+        } catch (IOException e) {
+            // PrintWriter does not throw.
+        }
+        out.flush();
+        candy.close();
+        candy.dumpMetrics();
+    }
+
+    private static void convert(String[] args) {
+        StorageFormat format = args.length >= 4 && args[3].equalsIgnoreCase("text")
+                ? StorageFormat.TEXT
+                : StorageFormat.BINARY;
+        try {
+            boolean isCompressed = StorageConfig.fromSystemProperties().isCompressed;
+            int count = Storage.convert(args[1], args[2], format, isCompressed);
+            System.out.println("Converted " + count + " tasks to " + format.name().toLowerCase()
+                    + (isCompressed ? ", compressed." : "."));
+        } catch (Exception e) {
+            System.out.println("Could not convert " + args[1] + ": " + e.getMessage());
+        }
     }
 
     /**
      * Runs Candy in terminal mode.
      * Reads input from {@link Ui#readCommand()}, parses it using {@link Parser#parse(String)},
-     * executes it, and prints the returned message.
+     * executes it, and streams the message to {@link Ui#getWriter()}.
      */
     public void run() {
         ui.showMessage(ui.getWelcomeText());
@@ -59,12 +171,19 @@ public class Candy {
         while (true) {
             try {
                 String input = ui.readCommand();
-                ParsedCommand command = Parser.parse(input);
+                ParsedCommand command = parse(input);
 
-                String message = command.execute(tasks, ui, storage);
-                ui.showMessage(message);
+                long start = System.nanoTime();
+                try {
+                    command.executeTo(tasks, ui, storage, ui.getWriter());
+                } finally {
+                    metrics.finishCommand(command.type, start);
+                }
+                ui.endMessage();
 
                 if (command.type == CommandType.BYE) {
+                    close();
+                    dumpMetrics();
                     return;
                 }
             } catch (CandyException e) {
@@ -76,22 +195,38 @@ public class Candy {
     }
 
     /**
-     * Loads tasks from storage into {@link #tasks}.
-     * If loading fails, Candy continues with an empty list.
+     * Streams tasks from storage into {@link #tasks}, replaying any journaled changes on top.
+     * If loading fails, Candy continues with the tasks read so far.
+     * Lines of the data file that could not be loaded are reported by line number.
+     * <p>
+     * Set {@code -Dcandy.load.report=true} to print how long the load took.
      */
     private void loadFromFile() {
         try {
-            for (String line : storage.loadLines()) {
-                Task task = Parser.parseLine(line);
-                if (task != null) {
-                    tasks.add(task);
-                }
+            LoadStats stats = storage.loadTasks(tasks);
+            metrics.recordLoad(stats);
+            if (Boolean.getBoolean("candy.load.report")) {
+                ui.showMessage(stats.toString());
             }
+            showLoadProblems(stats.getProblems());
         } catch (Exception e) {
             ui.showError("Warning: Could not load data (starting with empty list).");
         }
     }
 
+    private void showLoadProblems(List<String> problems) {
+        if (problems.isEmpty()) {
+            return;
+        }
+        for (String problem : problems.subList(0, Math.min(problems.size(), MAX_PROBLEMS_SHOWN))) {
+            ui.showError("Warning: skipped data file " + problem);
+        }
+        if (problems.size() > MAX_PROBLEMS_SHOWN) {
+            ui.showError("Warning: skipped " + (problems.size() - MAX_PROBLEMS_SHOWN) + " more data file lines.");
+        }
+        ui.showError("Skipped lines are left out of the data file the next time it is saved.");
+    }
+
     /**
      * Generates a reply string for the GUI.
      * <p>
@@ -102,10 +237,204 @@ public class Candy {
      */
     public String getResponse(String input) {
         try {
-            ParsedCommand parsedCommand = Parser.parse(input);
-            return parsedCommand.execute(tasks, ui, storage);
+            ParsedCommand parsedCommand = parse(input);
+            long start = System.nanoTime();
+            try {
+                return parsedCommand.execute(tasks, ui, storage);
+            } finally {
+                metrics.finishCommand(parsedCommand.type, start);
+                if (parsedCommand.type == CommandType.BYE) {
+                    close();
+                    dumpMetrics();
+                }
+            }
         } catch (CandyException e) {
             return e.getMessage();
         }
     }
+
+    /**
+     * Runs a script of commands and returns what terminal mode would print for them, without the welcome message.
+     * See {@link #executeBatch(Iterable, Appendable, int)}.
+     *
+     * @param lines Commands, one per element.
+     * @return Replies, each followed by a newline.
+     */
+    public String executeBatch(Iterable<String> lines) {
+        StringBuilder out = new StringBuilder();
+        try {
+            executeBatch(lines, out, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return out.toString();
+    }
+
+    /**
+     * Runs a script of commands, writing each reply followed by a newline to {@code out}, as terminal mode does.
+     * <p>
+     * Every line is parsed before the first command runs, and lines that do not parse get their error in
+     * place of a reply. Changes are not saved one by one: storage writes the whole list once at the end, and
+     * also after every {@code checkpointInterval} changes if that is positive, so a crash loses at most
+     * that many. A {@code bye} line ends the script. Server sessions wait while a script runs.
+     *
+     * @param lines Commands, one per element.
+     * @param out Destination of the replies.
+     * @param checkpointInterval Changes between intermediate saves, or 0 to save only at the end.
+     * @throws IOException If writing to {@code out} fails; changes made so far are still saved.
+     */
+    public void executeBatch(Iterable<String> lines, Appendable out, int checkpointInterval) throws IOException {
+        List<ParsedCommand> commands = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (String line : lines) {
+            try {
+                commands.add(parse(line.trim()));
+                errors.add(null);
+            } catch (CandyException e) {
+                commands.add(null);
+                errors.add(e.getMessage());
+            }
+        }
+
+        synchronized (commandLock) {
+            storage.beginBatch();
+            try {
+                int changes = 0;
+                for (int i = 0; i < commands.size(); i++) {
+                    ParsedCommand command = commands.get(i);
+                    if (command == null) {
+                        out.append(errors.get(i)).append('\n');
+                        continue;
+                    }
+                    if (command.type == CommandType.BYE) {
+                        out.append(ui.getByeText()).append('\n');
+                        break;
+                    }
+                    if (executeInBatch(command, out) && checkpointInterval > 0
+                            && ++changes % checkpointInterval == 0) {
+                        storage.checkpoint(tasks);
+                    }
+                    out.append('\n');
+                }
+            } finally {
+                storage.endBatch(tasks);
+            }
+        }
+    }
+
+    /**
+     * Runs one parsed script command, writing its reply or error to {@code out}.
+     *
+     * @return Whether the command changed the task list.
+     */
+    private boolean executeInBatch(ParsedCommand command, Appendable out) throws IOException {
+        long start = System.nanoTime();
+        try {
+            command.executeTo(tasks, ui, storage, out);
+            return command.type.isMutating();
+        } catch (CandyException e) {
+            out.append(e.getMessage());
+            return false;
+        } finally {
+            metrics.finishCommand(command.type, start);
+        }
+    }
+
+    /**
+     * Runs one command for a {@link CandyServer} session and writes the reply to {@code out}.
+     * <p>
+     * Sessions call this concurrently. Commands that change tasks run one at a time, so the task list
+     * and the storage journal see changes in the same order; their reply is built under the lock and
+     * written after it is released, so a slow client cannot stall the others. Read-only commands take
+     * no locks at all and read the state of the list current when they start, so they never wait for
+     * changes. {@code bye} ends only the session: every change is already persisted, so it
+     * waits for queued writes instead of saving the whole list.
+     *
+     * @param input One line from the client.
+     * @param out Destination of the reply.
+     * @return Type of the command, or null if the input could not be parsed.
+     * @throws IOException If writing the reply fails.
+     */
+    public CommandType serve(String input, Appendable out) throws IOException {
+        ParsedCommand command;
+        try {
+            command = parse(input);
+        } catch (CandyException e) {
+            out.append(e.getMessage());
+            return null;
+        }
+
+        long start = System.nanoTime();
+        String reply = null;
+        try {
+            if (command.type == CommandType.BYE) {
+                storage.flush();
+                reply = ui.getByeText();
+            } else if (command.type.isMutating()) {
+                synchronized (commandLock) {
+                    reply = command.execute(tasks, ui, storage);
+                }
+            } else {
+                command.executeTo(tasks, ui, storage, out);
+            }
+        } catch (CandyException e) {
+            reply = e.getMessage();
+        } finally {
+            metrics.finishCommand(command.type, start);
+        }
+        if (reply != null) {
+            out.append(reply);
+        }
+        return command.type;
+    }
+
+    /**
+     * Writes out every queued change and stops the storage writer thread.
+     * Terminal and GUI mode call this on {@code bye}; a command run afterwards still persists normally.
+     */
+    public void close() {
+        storage.close();
+    }
+
+    /**
+     * Registers a JVM shutdown hook that calls {@link #close()}, so queued changes survive Ctrl-C
+     * or the window being closed. The application calls this once for the instance it runs.
+     */
+    public void closeAtShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "candy-shutdown"));
+    }
+
+    /**
+     * Parses one input line, timing the parse phase.
+     */
+    private ParsedCommand parse(String input) throws CandyException {
+        long start = System.nanoTime();
+        try {
+            ParsedCommand command = Parser.parse(input);
+            metrics.record(command.type, Metrics.Phase.PARSE, System.nanoTime() - start);
+            return command;
+        } catch (CandyException e) {
+            metrics.recordInvalid(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the metrics report to the file named by {@code -Dcandy.metrics.file}, if set.
+     */
+    private void dumpMetrics() {
+        String fileName = System.getProperty("candy.metrics.file");
+        if (fileName == null) {
+            return;
+        }
+        Path path = Paths.get(fileName);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.writeString(path, metrics.report() + "\n", StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Warning: Could not write metrics to " + fileName + ".");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package candy;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves one shared task list to many clients over TCP on the loopback interface.
+ * <p>
+ * The protocol is line based and UTF-8 encoded. On connect the server sends the welcome message.
+ * After that, every line a client sends is one Candy command. Each reply is followed by a line holding
+ * a single {@code .}; reply lines that start with {@code .} get an extra {@code .} in front, as in SMTP.
+ * {@code bye} replies and then closes the connection.
+ * <p>
+ * Each session runs on its own virtual thread when the JVM supports them (Java 21+), and on a cached
+ * pool of platform threads otherwise. Commands go through {@link Candy#serve(String, Appendable)}.
+ */
+public class CandyServer implements Closeable {
+    /** Port used when none is given. */
+    public static final int DEFAULT_PORT = 7070;
+
+    private static final int OUTPUT_BUFFER_SIZE = 16 * 1024;
+
+    private final Candy candy;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+
+    /**
+     * Creates a server bound to the loopback interface.
+     *
+     * @param candy Application whose task list is served.
+     * @param port Port to listen on, or 0 to pick a free one.
+     * @throws IOException If the port cannot be bound.
+     */
+    public CandyServer(Candy candy, int port) throws IOException {
+        this.candy = candy;
+        this.serverSocket = new ServerSocket(port, 256, InetAddress.getLoopbackAddress());
+        this.sessions = newSessionExecutor();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return Port number.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts clients until {@link #close()} is called, handling each on its own thread.
+     *
+     * @throws IOException If accepting fails for a reason other than the server being closed.
+     */
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            sessions.execute(() -> handle(socket));
+        }
+    }
+
+    /**
+     * Stops accepting clients and waits briefly for open sessions to finish their current command.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                        OUTPUT_BUFFER_SIZE)) {
+            Reply reply = new Reply(writer);
+            reply.append(new Ui().getWelcomeText());
+            reply.end();
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                CommandType type = candy.serve(line, reply);
+                reply.end();
+                if (type == CommandType.BYE) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The client went away; its changes are already applied.
+        }
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread per session if the JVM has them.
+     * Looked up reflectively so Candy still builds and runs on Java 17.
+     */
+    static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "candy-session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Writes one reply at a time, escaping lines that start with {@code .} and terminating each reply.
+     */
+    private static class Reply implements Appendable {
+        private final Writer writer;
+        private boolean isAtLineStart = true;
+
+        private Reply(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public Reply append(CharSequence text) throws IOException {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public Reply append(CharSequence text, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                append(text.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Reply append(char c) throws IOException {
+            if (isAtLineStart && c == '.') {
+                writer.write('.');
+            }
+            writer.write(c);
+            isAtLineStart = c == '\n';
+            return this;
+        }
+
+        /**
+         * Finishes the current reply with the terminator line and sends it.
+         */
+        private void end() throws IOException {
+            if (!isAtLineStart) {
+                writer.write('\n');
+            }
+            writer.write(".\n");
+            writer.flush();
+            isAtLineStart = true;
+        }
+    }
+}
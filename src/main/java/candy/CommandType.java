@@ -4,15 +4,35 @@ package candy;
  * Represents the different types of commands that the Candy application supports.
  */
 public enum CommandType {
-    BYE,
-    LIST,
-    MARK,
-    UNMARK,
-    DELETE,
-    TODO,
-    DEADLINE,
-    EVENT,
-    FIND,
-    HELP,
-    SORT
-}
\ No newline at end of file
+    BYE(false),
+    LIST(false),
+    MARK(true),
+    UNMARK(true),
+    DELETE(true),
+    TODO(true),
+    DEADLINE(true),
+    EVENT(true),
+    UNDO(true),
+    REDO(true),
+    FIND(false),
+    SEARCH(false),
+    FILTER(false),
+    HELP(false),
+    SORT(false),
+    STATS(false);
+
+    private final boolean isMutating;
+
+    CommandType(boolean isMutating) {
+        this.isMutating = isMutating;
+    }
+
+    /**
+     * Returns whether commands of this type change the task list.
+     *
+     * @return true for commands that add, change or remove tasks.
+     */
+    public boolean isMutating() {
+        return isMutating;
+    }
+}
@@ -18,7 +18,18 @@ public class Deadline extends Task {
      * @param byDate Due date of the task.
      */
     public Deadline(String description, LocalDate byDate) {
-        super(description);
+        this(description, byDate, false);
+    }
+
+    /**
+     * Creates a Deadline task with the given description, due date and completion status.
+     *
+     * @param description Description of the task.
+     * @param byDate Due date of the task.
+     * @param isDone Completion status of the task.
+     */
+    public Deadline(String description, LocalDate byDate, boolean isDone) {
+        super(description, isDone);
         this.byDate = byDate;
     }
 
@@ -31,6 +42,17 @@ public class Deadline extends Task {
         return byDate;
     }
 
+    /**
+     * Returns a new deadline with the same description and due date and the given completion status.
+     *
+     * @param isDone Completion status of the copy.
+     * @return Copy of this deadline without an ID
+     */
+    @Override
+    protected Task copy(boolean isDone) {
+        return new Deadline(description, byDate, isDone);
+    }
+
     /**
      * Returns the string representation of the deadline task.
      *
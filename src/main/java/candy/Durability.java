@@ -0,0 +1,17 @@
+package candy;
+
+/**
+ * Represents how eagerly {@link Storage} pushes changes to disk.
+ * <p>
+ * The levels trade command latency against how many recent changes can be lost if the process dies.
+ */
+public enum Durability {
+    /** Every change is written and forced to disk before the command returns. */
+    SYNC,
+
+    /** Changes are written by a background thread in small batches, each batch forced to disk. */
+    GROUP_COMMIT,
+
+    /** Changes are written by a background thread at a fixed interval and left to the OS to flush. */
+    PERIODIC
+}
@@ -17,7 +17,19 @@ public class Event extends Task {
      * @param toTime End time of the event.
      */
     public Event(String description, String fromTime, String toTime) {
-        super(description);
+        this(description, fromTime, toTime, false);
+    }
+
+    /**
+     * Creates an Event task with the given description, time range and completion status.
+     *
+     * @param description Description of the event.
+     * @param fromTime Start time of the event.
+     * @param toTime End time of the event.
+     * @param isDone Completion status of the event.
+     */
+    public Event(String description, String fromTime, String toTime, boolean isDone) {
+        super(description, isDone);
 
         this.fromTime = fromTime;
         this.toTime = toTime;
@@ -40,6 +52,17 @@ public class Event extends Task {
         return toTime;
     }
 
+    /**
+     * Returns a new event with the same description and time range and the given completion status.
+     *
+     * @param isDone Completion status of the copy.
+     * @return Copy of this event without an ID
+     */
+    @Override
+    protected Task copy(boolean isDone) {
+        return new Event(description, fromTime, toTime, isDone);
+    }
+
     /**
      * Returns the string representation of the event task.
      *
@@ -0,0 +1,344 @@
+package candy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Trigram inverted index over lower-cased task descriptions, used by {@link TaskList#find(String)}.
+ * <p>
+ * Each task is identified by its {@link Task#getId() ID}, which grows with insertion order. For every
+ * distinct run of three characters in a description the index keeps an ascending posting list of IDs. Any description
+ * containing a keyword must contain all of the keyword's trigrams, so intersecting their posting lists
+ * gives a small candidate set that still has to be checked with {@link String#contains(CharSequence)}.
+ * Keywords shorter than three characters have no trigrams and cannot use the index.
+ * <p>
+ * One thread at a time adds to the index while any number of threads read it without locks. Posting lists
+ * only ever grow, and each publishes its length through a volatile field after writing the entries it
+ * covers, so a reader sees every entry added before the {@link TaskList} state it is working from.
+ * Removed tasks are only counted: their IDs stay in the postings, callers drop candidates that are no
+ * longer in the list, and the owner rebuilds the index once {@link #isMostlyRemoved(int)} says so.
+ * <p>
+ * The same postings rank tasks by similarity for {@link TaskList#search(String, int)}; see
+ * {@link #search(String, int, IntPredicate)}. For that the index also remembers how many distinct
+ * trigrams each task has, in one slot per indexed task, so its size follows the number of tasks rather
+ * than the largest ID.
+ */
+class FindIndex {
+    /** Shortest keyword the index can answer. */
+    static final int MIN_QUERY_LENGTH = 3;
+
+    /** Removed tasks tolerated before a rebuild, on top of one per live task. */
+    private static final int MIN_REMOVED_TO_REBUILD = 64;
+
+    /** Orders matches from worst to best, so a heap of them drops the worst first. Earlier keys win ties. */
+    private static final Comparator<Match> WORST_FIRST = Comparator
+            .comparingDouble((Match match) -> match.score)
+            .thenComparing(match -> -match.key);
+
+    private final ConcurrentHashMap<Long, PostingList> postings = new ConcurrentHashMap<>();
+
+    /**
+     * Number of distinct trigrams of each key's text. A key's count is written after its postings but
+     * before the {@link TaskList} state holding its task is published, so it may read as 0 only for keys
+     * the reader does not consider live.
+     */
+    private final TrigramCounts trigramCounts = new TrigramCounts();
+
+    private int removedCount;
+
+    /**
+     * Indexes a task. Keys must be added in ascending order.
+     *
+     * @param key Key of the task.
+     * @param lowerText Lower-cased description of the task.
+     */
+    void add(int key, String lowerText) {
+        int distinct = 0;
+        for (int i = 0; i + MIN_QUERY_LENGTH <= lowerText.length(); i++) {
+            PostingList list = postings.computeIfAbsent(trigram(lowerText, i), k -> new PostingList());
+            if (list.addIfAbsent(key)) {
+                distinct++;
+            }
+        }
+        trigramCounts.add(key, distinct);
+    }
+
+    /**
+     * Records that a task left the list. Its key stays in the postings until the index is rebuilt.
+     */
+    void remove() {
+        removedCount++;
+    }
+
+    /**
+     * Returns whether removed tasks outnumber live ones, so rebuilding costs O(1) amortized per removal.
+     *
+     * @param liveCount Number of tasks still in the list.
+     */
+    boolean isMostlyRemoved(int liveCount) {
+        return removedCount > MIN_REMOVED_TO_REBUILD && removedCount > liveCount;
+    }
+
+    /**
+     * Returns the keys of tasks whose description may contain the keyword, including keys of removed
+     * tasks and of tasks added after the caller's view of the list.
+     *
+     * @param lowerKeyword Lower-cased keyword, at least {@link #MIN_QUERY_LENGTH} characters long.
+     * @return Candidate keys in ascending order.
+     */
+    int[] candidates(String lowerKeyword) {
+        Set<Long> trigrams = distinctTrigrams(lowerKeyword);
+        int[][] lists = new int[trigrams.size()][];
+        int[] sizes = new int[trigrams.size()];
+        int count = 0;
+        for (long trigram : trigrams) {
+            PostingList list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            // Read the length first: the array read after it holds at least that many entries.
+            int size = list.size;
+            int[] keys = list.keys;
+            // Keep the lists sorted by length so the shortest one drives the intersection.
+            int at = count++;
+            for (; at > 0 && sizes[at - 1] > size; at--) {
+                lists[at] = lists[at - 1];
+                sizes[at] = sizes[at - 1];
+            }
+            lists[at] = keys;
+            sizes[at] = size;
+        }
+
+        IntList result = new IntList(sizes[0]);
+        for (int i = 0; i < sizes[0]; i++) {
+            int key = lists[0][i];
+            if (isInAll(key, lists, sizes)) {
+                result.add(key);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Returns an upper bound on the number of {@link #candidates(String)} for a keyword, in O(1) per trigram.
+     *
+     * @param lowerKeyword Lower-cased keyword, at least {@link #MIN_QUERY_LENGTH} characters long.
+     * @return Length of the shortest posting list of the keyword's trigrams.
+     */
+    int estimateCandidates(String lowerKeyword) {
+        int estimate = Integer.MAX_VALUE;
+        for (long trigram : distinctTrigrams(lowerKeyword)) {
+            PostingList list = postings.get(trigram);
+            estimate = Math.min(estimate, list == null ? 0 : list.size);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the keys whose text is most similar to the query, best first.
+     * <p>
+     * Similarity is the Dice coefficient of the two sets of distinct trigrams: twice the number they share
+     * divided by the sum of their sizes, so it is 1 for the same set and does not depend on word order.
+     * A key only counts as a match if it shares at least a third of the query's trigrams, which still lets
+     * a typo or two through. By the pigeonhole principle every such key appears in one of the
+     * {@code m - minShared + 1} shortest posting lists of the query's {@code m} trigrams, so only those
+     * lists are walked; the others are only probed with binary search. A heap holds the best
+     * {@code limit} matches so far, and keys that could not beat the worst of them are dropped before
+     * they are probed.
+     *
+     * @param lowerQuery Lower-cased query, at least {@link #MIN_QUERY_LENGTH} characters long.
+     * @param limit Most matches to return.
+     * @param isLive Whether a key still belongs to the caller's view of the list.
+     * @return Matches sorted from most to least similar, earlier keys first among equals.
+     */
+    List<Match> search(String lowerQuery, int limit, IntPredicate isLive) {
+        Set<Long> trigrams = distinctTrigrams(lowerQuery);
+        int queryCount = trigrams.size();
+        int[][] lists = new int[queryCount][];
+        int[] sizes = new int[queryCount];
+        int count = 0;
+        for (long trigram : trigrams) {
+            PostingList list = postings.get(trigram);
+            int size = list == null ? 0 : list.size;
+            int[] keys = list == null ? new int[0] : list.keys;
+            int at = count++;
+            for (; at > 0 && sizes[at - 1] > size; at--) {
+                lists[at] = lists[at - 1];
+                sizes[at] = sizes[at - 1];
+            }
+            lists[at] = keys;
+            sizes[at] = size;
+        }
+        int minShared = (queryCount + 2) / 3;
+        int walked = queryCount - minShared + 1;
+        int[] positions = new int[walked];
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        while (true) {
+            int key = Integer.MAX_VALUE;
+            for (int i = 0; i < walked; i++) {
+                if (positions[i] < sizes[i]) {
+                    key = Math.min(key, lists[i][positions[i]]);
+                }
+            }
+            if (key == Integer.MAX_VALUE) {
+                break;
+            }
+            int shared = 0;
+            for (int i = 0; i < walked; i++) {
+                if (positions[i] < sizes[i] && lists[i][positions[i]] == key) {
+                    shared++;
+                    positions[i]++;
+                }
+            }
+
+            int keyCount = trigramCounts.get(key);
+            int mostShared = Math.min(shared + queryCount - walked, keyCount);
+            if (mostShared < minShared || best.size() == limit
+                    && dice(mostShared, queryCount, keyCount) <= best.peek().score) {
+                continue;
+            }
+            for (int i = walked; i < queryCount; i++) {
+                if (Arrays.binarySearch(lists[i], 0, sizes[i], key) >= 0) {
+                    shared++;
+                }
+            }
+            double score = dice(shared, queryCount, keyCount);
+            if (shared < minShared || best.size() == limit && score <= best.peek().score || !isLive.test(key)) {
+                continue;
+            }
+            best.add(new Match(key, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(Collections.reverseOrder(WORST_FIRST));
+        return matches;
+    }
+
+    private static double dice(int shared, int queryCount, int keyCount) {
+        return 2.0 * shared / (queryCount + keyCount);
+    }
+
+    private static boolean isInAll(int key, int[][] lists, int[] sizes) {
+        for (int j = 1; j < lists.length; j++) {
+            if (Arrays.binarySearch(lists[j], 0, sizes[j], key) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<Long> distinctTrigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + MIN_QUERY_LENGTH <= text.length(); i++) {
+            trigrams.add(trigram(text, i));
+        }
+        return trigrams;
+    }
+
+    private static long trigram(String text, int start) {
+        return (long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2);
+    }
+
+    /**
+     * A key found by {@link #search(String, int, IntPredicate)} and its similarity to the query, from 0 to 1.
+     */
+    static final class Match {
+        final int key;
+        final double score;
+
+        private Match(int key, double score) {
+            this.key = key;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Ascending keys that only grow. A grown array is published before the length that needs it,
+     * and entries are written before the length that covers them.
+     */
+    private static final class PostingList {
+        private volatile int[] keys = new int[4];
+        private volatile int size;
+
+        /**
+         * Adds a key unless it is already the last one, and returns whether it was added.
+         */
+        private boolean addIfAbsent(int key) {
+            int count = size;
+            if (count > 0 && keys[count - 1] == key) {
+                return false;
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+            keys[count] = key;
+            size = count + 1;
+            return true;
+        }
+    }
+
+    /**
+     * Ascending keys and the number of distinct trigrams of each, one slot per key. Both arrays are
+     * replaced together when they grow; the grown pair is published before the size that needs it, and
+     * entries are written before the size that covers them.
+     */
+    private static final class TrigramCounts {
+        private volatile Slots slots = new Slots(16);
+        private volatile int size;
+
+        /**
+         * Records the count of a key larger than every key recorded so far.
+         */
+        private void add(int key, int count) {
+            int at = size;
+            Slots current = slots;
+            if (at == current.keys.length) {
+                current = new Slots(current, at * 2);
+                slots = current;
+            }
+            current.keys[at] = key;
+            current.counts[at] = count;
+            size = at + 1;
+        }
+
+        /**
+         * Returns the count recorded for a key, or 0 if it has not been recorded.
+         */
+        private int get(int key) {
+            // Read the size first: the slots read after it hold at least that many entries.
+            int count = size;
+            Slots current = slots;
+            int at = Arrays.binarySearch(current.keys, 0, count, key);
+            return at >= 0 ? current.counts[at] : 0;
+        }
+    }
+
+    /**
+     * Key and count arrays of the same length, swapped in as one.
+     */
+    private static final class Slots {
+        private final int[] keys;
+        private final int[] counts;
+
+        private Slots(int capacity) {
+            keys = new int[capacity];
+            counts = new int[capacity];
+        }
+
+        private Slots(Slots old, int capacity) {
+            keys = Arrays.copyOf(old.keys, capacity);
+            counts = Arrays.copyOf(old.counts, capacity);
+        }
+    }
+}
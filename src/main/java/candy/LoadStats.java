@@ -0,0 +1,104 @@
+package candy;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summarises one load of the save file: how much was read, how fast, and which lines were skipped.
+ */
+public class LoadStats {
+    private final long lineCount;
+    private final long taskCount;
+    private final long byteCount;
+    private final long elapsedNanos;
+    private final List<String> problems;
+
+    /**
+     * Creates a summary of a finished load.
+     *
+     * @param lineCount Number of lines read from the data file.
+     * @param taskCount Number of tasks in the list after loading.
+     * @param byteCount Number of bytes read from the data file.
+     * @param elapsedNanos Time taken, in nanoseconds.
+     */
+    public LoadStats(long lineCount, long taskCount, long byteCount, long elapsedNanos) {
+        this(lineCount, taskCount, byteCount, elapsedNanos, Collections.emptyList());
+    }
+
+    /**
+     * Creates a summary of a finished load that skipped some lines.
+     *
+     * @param lineCount Number of lines read from the data file.
+     * @param taskCount Number of tasks in the list after loading.
+     * @param byteCount Number of bytes read from the data file.
+     * @param elapsedNanos Time taken, in nanoseconds.
+     * @param problems One message per skipped line, naming its line number.
+     */
+    public LoadStats(long lineCount, long taskCount, long byteCount, long elapsedNanos, List<String> problems) {
+        this.lineCount = lineCount;
+        this.taskCount = taskCount;
+        this.byteCount = byteCount;
+        this.elapsedNanos = elapsedNanos;
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Returns how many lines, or records of a binary file, were read from the data file, including skipped ones.
+     *
+     * @return Number of lines read.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns how many tasks the list held once loading finished.
+     *
+     * @return Number of tasks after loading.
+     */
+    public long getTaskCount() {
+        return taskCount;
+    }
+
+    /**
+     * Returns how much of the data file was read, as stored on disk (compressed if the file is).
+     *
+     * @return Number of bytes read.
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Returns how long the load took, including replaying the journal.
+     *
+     * @return Elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns why each skipped line of the data file could not be loaded, in file order.
+     *
+     * @return Messages such as {@code "line 7: Date must be yyyy-mm-dd (example: 2019-10-15)"}.
+     */
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Returns the load throughput.
+     *
+     * @return Lines read per second.
+     */
+    public double getLinesPerSecond() {
+        return elapsedNanos == 0 ? 0 : lineCount * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %d tasks from %d lines (%d bytes) in %.1f ms (%.0f lines/s)",
+                taskCount, lineCount, byteCount, elapsedNanos / 1_000_000.0, getLinesPerSecond());
+    }
+}
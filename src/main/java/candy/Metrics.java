@@ -0,0 +1,214 @@
+package candy;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how long commands take, split into parse, execute and persist phases, plus the cost of
+ * loading and writing the data file.
+ * <p>
+ * Latencies go into fixed histograms held in {@link AtomicLongArray}s, so recording takes no locks and
+ * allocates nothing. Each power of two is split into four buckets, which keeps reported percentiles
+ * within 25% of the true value. Persist time is measured by {@link Storage} on the thread that runs the
+ * command and handed back through {@link #finishCommand(CommandType, long)}.
+ */
+public class Metrics {
+    /**
+     * Represents one stage of handling a command.
+     */
+    public enum Phase {
+        PARSE,
+        EXECUTE,
+        PERSIST
+    }
+
+    /** Values 0-3 exactly, then four buckets for each power of two from 2^2 to 2^62. */
+    private static final int BUCKETS = 4 + 61 * 4;
+    private static final int PHASES = Phase.values().length;
+
+    /** One row per command type, plus a last row for input that failed to parse. */
+    private static final int ROWS = CommandType.values().length + 1;
+    private static final int INVALID_ROW = ROWS - 1;
+
+    /** Cell used for data file writes, after the command cells. */
+    private static final int WRITE_CELL = ROWS * PHASES;
+    private static final int CELLS = WRITE_CELL + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(CELLS * BUCKETS);
+    private final AtomicLongArray counts = new AtomicLongArray(CELLS);
+    private final AtomicLongArray maxNanos = new AtomicLongArray(CELLS);
+
+    /** Bytes written to data and journal files. */
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /** Per thread: persist time of the current command, and 1 if anything was persisted. */
+    private final ThreadLocal<long[]> persistClock = ThreadLocal.withInitial(() -> new long[2]);
+
+    private volatile LoadStats loadStats;
+
+    /**
+     * Records the time taken by one phase of a command.
+     *
+     * @param type Command type.
+     * @param phase Phase measured.
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    public void record(CommandType type, Phase phase, long nanos) {
+        recordCell(type.ordinal() * PHASES + phase.ordinal(), nanos);
+    }
+
+    /**
+     * Records the time spent rejecting input that could not be parsed.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    public void recordInvalid(long nanos) {
+        recordCell(INVALID_ROW * PHASES + Phase.PARSE.ordinal(), nanos);
+    }
+
+    /**
+     * Adds persist time spent on the calling thread to the command it is running.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    public void addPersistNanos(long nanos) {
+        long[] clock = persistClock.get();
+        clock[0] += nanos;
+        clock[1] = 1;
+    }
+
+    /**
+     * Records the execute and persist phases of a command that started executing at {@code startNanos}.
+     * Persist time reported by {@link #addPersistNanos(long)} on this thread is taken out of the execute time.
+     *
+     * @param type Command type.
+     * @param startNanos {@link System#nanoTime()} when execution started.
+     */
+    public void finishCommand(CommandType type, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        long[] clock = persistClock.get();
+        long persistNanos = clock[0];
+        boolean hasPersisted = clock[1] != 0;
+        clock[0] = 0;
+        clock[1] = 0;
+
+        record(type, Phase.EXECUTE, Math.max(elapsed - persistNanos, 0));
+        if (hasPersisted) {
+            record(type, Phase.PERSIST, persistNanos);
+        }
+    }
+
+    /**
+     * Records one write of a data or journal file, on whichever thread performed it.
+     *
+     * @param nanos Elapsed time in nanoseconds.
+     * @param bytes Number of bytes written.
+     */
+    public void recordWrite(long nanos, long bytes) {
+        recordCell(WRITE_CELL, nanos);
+        savedBytes.getAndAdd(bytes);
+    }
+
+    /**
+     * Records the most recent load of the data file.
+     *
+     * @param stats Load summary.
+     */
+    public void recordLoad(LoadStats stats) {
+        loadStats = stats;
+    }
+
+    private void recordCell(int cell, long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets.getAndIncrement(cell * BUCKETS + bucketOf(value));
+        counts.getAndIncrement(cell);
+        long max = maxNanos.get(cell);
+        while (value > max && !maxNanos.compareAndSet(cell, max, value)) {
+            max = maxNanos.get(cell);
+        }
+    }
+
+    /**
+     * Returns the bucket of a value: exact below 4, otherwise four buckets per power of two.
+     */
+    private static int bucketOf(long value) {
+        if (value < 4) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int quarter = (int) (value >>> (exponent - 2)) & 3;
+        return (exponent - 1) * 4 + quarter;
+    }
+
+    /**
+     * Returns the smallest value that falls into the bucket after {@code bucket}.
+     */
+    private static long upperBound(int bucket) {
+        int next = bucket + 1;
+        if (next < 4) {
+            return next;
+        }
+        int exponent = next / 4 + 1;
+        int quarter = next % 4;
+        return (4L + quarter) << (exponent - 2);
+    }
+
+    /**
+     * Formats everything recorded so far as a table.
+     *
+     * @return Report text.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Command latency in microseconds (percentiles are bucket upper bounds):\n");
+        sb.append(String.format(Locale.ROOT, "%-10s %-8s %8s %10s %10s %10s\n",
+                "Command", "Phase", "Count", "p50", "p99", "Max"));
+        boolean hasCommands = false;
+        for (int row = 0; row < ROWS; row++) {
+            String name = row == INVALID_ROW ? "(invalid)" : CommandType.values()[row].name().toLowerCase();
+            for (Phase phase : Phase.values()) {
+                int cell = row * PHASES + phase.ordinal();
+                if (counts.get(cell) > 0) {
+                    appendRow(sb, name, phase.name().toLowerCase(), cell);
+                    hasCommands = true;
+                }
+            }
+        }
+        if (!hasCommands) {
+            sb.append("No commands recorded yet.\n");
+        }
+
+        if (counts.get(WRITE_CELL) > 0) {
+            appendRow(sb, "(writes)", "disk", WRITE_CELL);
+        }
+        sb.append(String.format(Locale.ROOT, "Saved %d bytes in %d writes.\n",
+                savedBytes.get(), counts.get(WRITE_CELL)));
+        LoadStats stats = loadStats;
+        sb.append(stats == null ? "No load recorded." : stats.toString());
+        return sb.toString();
+    }
+
+    private void appendRow(StringBuilder sb, String name, String phase, int cell) {
+        long count = counts.get(cell);
+        sb.append(String.format(Locale.ROOT, "%-10s %-8s %8d %10.1f %10.1f %10.1f\n", name, phase, count,
+                percentile(cell, count, 0.50) / 1000.0, percentile(cell, count, 0.99) / 1000.0,
+                maxNanos.get(cell) / 1000.0));
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given fraction of the recorded values,
+     * capped at the largest value seen.
+     */
+    private long percentile(int cell, long count, double fraction) {
+        long target = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets.get(cell * BUCKETS + bucket);
+            if (seen >= target) {
+                return Math.min(upperBound(bucket), maxNanos.get(cell));
+            }
+        }
+        return maxNanos.get(cell);
+    }
+}
@@ -1,6 +1,8 @@
 package candy;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Represents a parsed user command.
@@ -10,7 +12,8 @@ import java.time.LocalDate;
  *   <li>{@link #type} - what command to run</li>
  *   <li>extra fields (description, index, etc.) needed to execute the command</li>
  * </ul>
- * Execution returns a String message to display (terminal or GUI).
+ * Execution returns a String message to display (terminal or GUI), or writes it to an
+ * {@link Appendable} with {@link #executeTo(TaskList, Ui, Storage, Appendable)}.
  */
 public class ParsedCommand {
     /** The command type. */
@@ -19,7 +22,7 @@ public class ParsedCommand {
     /** Task description for todo/deadline/event. */
     public String description;
 
-    /** Keyword for find. */
+    /** Keyword for find, the words to search for, or the conditions of a filter as typed. */
     public String keyword;
 
     /** Start time for event. */
@@ -34,6 +37,24 @@ public class ParsedCommand {
     /** Zero-based task index for mark/unmark/delete. */
     public int index = -1;
 
+    /** Task ID for mark/unmark/delete when the task was given as {@code #id}, or 0 if a number was given. */
+    public int id = 0;
+
+    /** Parsed conditions for filter. */
+    public TaskFilter filter;
+
+    /** Tasks for a bulk mark/unmark/delete, or null if a single task was given. */
+    public TaskSelection selection;
+
+    /** One-based page for list/find/filter, or 0 to show every task. */
+    public int page = 0;
+
+    /** Tasks per page for list/find/filter when {@link #page} is set. */
+    public int pageSize = Parser.DEFAULT_PAGE_SIZE;
+
+    /** Most matches to show for search. */
+    public int limit = Parser.DEFAULT_SEARCH_LIMIT;
+
     /**
      * Creates a ParsedCommand of the given type.
      *
@@ -43,6 +64,39 @@ public class ParsedCommand {
         this.type = type;
     }
 
+    /**
+     * Executes this command and writes its message to {@code out}.
+     * List, find and filter results are written task by task, so a long list is never held as one string.
+     *
+     * @param tasks Task list to operate on.
+     * @param ui UI helper that formats messages.
+     * @param storage Storage used to persist tasks.
+     * @param out Destination of the message.
+     * @throws CandyException If execution fails (e.g., invalid index).
+     * @throws IOException If the destination fails.
+     */
+    public void executeTo(TaskList tasks, Ui ui, Storage storage, Appendable out)
+            throws CandyException, IOException {
+        switch (type) {
+        case LIST:
+            // A copy, so the header and the lines come from the same state while other clients change the list.
+            ui.writeListText(tasks.copy(), page, pageSize, out);
+            break;
+
+        case FIND:
+            ui.writeFindText(keyword, tasks.find(keyword), page, pageSize, out);
+            break;
+
+        case FILTER:
+            ui.writeFilterText(keyword, tasks.filter(filter), page, pageSize, out);
+            break;
+
+        default:
+            out.append(execute(tasks, ui, storage));
+            break;
+        }
+    }
+
     /**
      * Executes this command using the given task list, UI helper, and storage.
      * Returns a message string to be displayed by either terminal or GUI.
@@ -56,12 +110,12 @@ public class ParsedCommand {
     public String execute(TaskList tasks, Ui ui, Storage storage) throws CandyException {
         switch (type) {
         case LIST:
-            return ui.getListText(tasks);
+            return ui.getListText(tasks.copy(), page, pageSize);
 
         case TODO: {
             Task task = new Todo(description);
             tasks.add(task);
-            storage.saveLines(tasks.toLines());
+            storage.recordAdd(tasks, task);
             return ui.getAddText(task, tasks.size());
         }
 
@@ -69,52 +123,127 @@ public class ParsedCommand {
             LocalDate date = Parser.parseDate(byDate);
             Task task = new Deadline(description, date);
             tasks.add(task);
-            storage.saveLines(tasks.toLines());
+            storage.recordAdd(tasks, task);
             return ui.getAddText(task, tasks.size());
         }
 
         case EVENT: {
             Task task = new Event(description, fromTime, toTime);
             tasks.add(task);
-            storage.saveLines(tasks.toLines());
+            storage.recordAdd(tasks, task);
             return ui.getAddText(task, tasks.size());
         }
 
         case MARK: {
+            if (selection != null) {
+                int[] indexes = selection.resolve(tasks);
+                if (indexes.length > 0) {
+                    tasks.markAll(indexes);
+                    storage.recordMarkAll(tasks, idsAt(tasks, indexes));
+                }
+                return ui.getBulkMarkText(indexes.length);
+            }
+            int index = resolveIndex(tasks);
             tasks.mark(index);
-            storage.saveLines(tasks.toLines());
+            storage.recordMark(tasks, tasks.get(index).getId());
             return ui.getMarkText(tasks.get(index));
         }
 
         case UNMARK: {
+            if (selection != null) {
+                int[] indexes = selection.resolve(tasks);
+                if (indexes.length > 0) {
+                    tasks.unmarkAll(indexes);
+                    storage.recordUnmarkAll(tasks, idsAt(tasks, indexes));
+                }
+                return ui.getBulkUnmarkText(indexes.length);
+            }
+            int index = resolveIndex(tasks);
             tasks.unmark(index);
-            storage.saveLines(tasks.toLines());
+            storage.recordUnmark(tasks, tasks.get(index).getId());
             return ui.getUnmarkText(tasks.get(index));
         }
 
         case DELETE: {
+            if (selection != null) {
+                int[] indexes = selection.resolve(tasks);
+                if (indexes.length > 0) {
+                    List<Task> removed = tasks.removeAll(indexes);
+                    storage.recordDeleteAll(tasks, idsOf(removed));
+                }
+                return ui.getBulkDeleteText(indexes.length, tasks.size());
+            }
+            int index = resolveIndex(tasks);
             Task removed = tasks.remove(index);
-            storage.saveLines(tasks.toLines());
+            storage.recordDelete(tasks, removed.getId());
             return ui.getDeleteText(removed, tasks.size());
         }
 
+        case UNDO:
+            tasks.undo();
+            storage.recordRestore(tasks);
+            return ui.getUndoText(tasks.size());
+
+        case REDO:
+            tasks.redo();
+            storage.recordRestore(tasks);
+            return ui.getRedoText(tasks.size());
+
         case FIND: {
             TaskList matches = tasks.find(keyword);
-            return ui.getFindText(keyword, matches);
+            return ui.getFindText(keyword, matches, page, pageSize);
         }
 
+        case FILTER:
+            return ui.getFilterText(keyword, tasks.filter(filter), page, pageSize);
+
+        case SEARCH:
+            return ui.getSearchText(keyword, tasks.search(keyword, limit));
+
         case SORT:
             return tasks.formatSortedForDisplay();
 
         case HELP:
             return ui.getHelpText();
 
+        case STATS:
+            return storage.getMetrics().report();
+
         case BYE:
-            storage.saveLines(tasks.toLines());
+            storage.save(tasks);
             return ui.getByeText();
 
         default:
             throw new CandyException("Unknown command. Type 'help' to see available commands.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the current zero-based index of the task this command refers to.
+     */
+    private int resolveIndex(TaskList tasks) throws CandyException {
+        return id != 0 ? tasks.indexOf(id) : index;
+    }
+
+    /**
+     * Returns the IDs of the tasks now at the given indexes, which storage records changes by.
+     */
+    private static int[] idsAt(TaskList tasks, int[] indexes) throws CandyException {
+        int[] ids = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            ids[i] = tasks.get(indexes[i]).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the IDs of the given tasks, in the same order.
+     */
+    private static int[] idsOf(List<Task> tasks) {
+        int[] ids = new int[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tasks.get(i).getId();
+        }
+        return ids;
+    }
+}
@@ -1,6 +1,9 @@
 package candy;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
 
 /**
  * Parses raw user input into structured {@link ParsedCommand} objects.
@@ -8,113 +11,285 @@ import java.time.LocalDate;
  * Also supports converting between save-file lines and {@link Task} objects.
  */
 public class Parser {
+    /** Number of tasks per page when a page is requested without {@code --page-size}. */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /** Number of matches a search shows without {@code --top}. */
+    public static final int DEFAULT_SEARCH_LIMIT = 10;
+
+    private static final String LIST_FORMAT = "Please use format: list [page] [--page-size <n>]";
+    private static final String FIND_FORMAT = "Please use format: find <keyword> [--page <n>] [--page-size <n>]";
+    private static final String FILTER_FORMAT =
+            "Please use format: filter <conditions> [--page <n>] [--page-size <n>]";
+    private static final String SEARCH_FORMAT = "Please use format: search <words> [--top <n>]";
+
+    /** Lower-case names of the {@link CommandType} constants, which are also the command words. */
+    private static final CommandType[] COMMANDS = CommandType.values();
+    private static final String[] COMMAND_WORDS = new String[COMMANDS.length];
+
+    static {
+        for (int i = 0; i < COMMANDS.length; i++) {
+            COMMAND_WORDS[i] = COMMANDS[i].name().toLowerCase(Locale.ROOT);
+        }
+    }
 
     /**
      * Parses one user input line into a {@link ParsedCommand}.
+     * <p>
+     * The line is scanned once. The command word and its arguments are tracked as offsets into
+     * {@code input}, and only the values the command keeps (such as its description) are copied out.
      *
      * @param input Raw user input.
      * @return ParsedCommand containing command type and required parameters.
      * @throws CandyException If input is empty or command format is invalid.
      */
     public static ParsedCommand parse(String input) throws CandyException {
-        String trimmed = input.trim();
-        if (trimmed.isEmpty()) {
+        int end = trimEnd(input, 0, input.length());
+        int start = skipSpaces(input, 0, end);
+        if (start == end) {
             throw new CandyException("Please enter a command. Type 'help' to see available commands.");
         }
+        int wordEnd = skipWord(input, start, end);
+        int argStart = skipSpaces(input, wordEnd, end);
 
-        String command = getCommand(trimmed);
-
-        switch (command) {
-        case "bye":
-            return new ParsedCommand(CommandType.BYE);
-        case "list":
-            return new ParsedCommand(CommandType.LIST);
-        case "help":
-            return new ParsedCommand(CommandType.HELP);
-        case "sort":
-            return new ParsedCommand(CommandType.SORT);
-        case "mark":
-            return parseIndexCommand(trimmed, CommandType.MARK);
-        case "unmark":
-            return parseIndexCommand(trimmed, CommandType.UNMARK);
-        case "delete":
-            return parseIndexCommand(trimmed, CommandType.DELETE);
-        case "todo":
-            return parseTodo(trimmed);
-        case "deadline":
-            return parseDeadline(trimmed);
-        case "event":
-            return parseEvent(trimmed);
-        case "find":
-            return parseFind(trimmed);
-        default:
+        CommandType type = commandAt(input, start, wordEnd);
+        if (type == null) {
             throw new CandyException("Unknown command. Type 'help' to see available commands.");
         }
+
+        switch (type) {
+        case LIST:
+            return parseList(input, argStart, end);
+        case MARK:
+        case UNMARK:
+        case DELETE:
+            return parseIndexCommand(input, argStart, end, type);
+        case TODO:
+            return parseTodo(input, argStart, end);
+        case DEADLINE:
+            return parseDeadline(input, argStart, end);
+        case EVENT:
+            return parseEvent(input, argStart, end);
+        case FIND:
+            return parseFind(input, argStart, end);
+        case SEARCH:
+            return parseSearch(input, argStart, end);
+        case FILTER:
+            return parseFilter(input, argStart, end);
+        default:
+            return new ParsedCommand(type);
+        }
     }
 
     /**
-     * Extracts the command word (first token) from an input line.
-     *
-     * @param input Trimmed user input.
-     * @return Command word.
+     * Returns the command whose word is {@code input[start, end)}, or null if there is none.
      */
-    private static String getCommand(String input) {
-        String[] parts = input.split("\\s+", 2);
-        return parts[0];
+    private static CommandType commandAt(String input, int start, int end) {
+        int length = end - start;
+        for (int i = 0; i < COMMANDS.length; i++) {
+            if (COMMAND_WORDS[i].length() == length && input.startsWith(COMMAND_WORDS[i], start)) {
+                return COMMANDS[i];
+            }
+        }
+        return null;
     }
 
     /**
-     * Extracts everything after the command word.
-     *
-     * @param input Trimmed user input.
-     * @return Arguments string (may be empty).
+     * Returns whether a character counts as whitespace, using the same rule as {@link String#trim()}.
      */
-    private static String getArguments(String input) {
-        String[] parts = input.split("\\s+", 2);
-        return parts.length < 2 ? "" : parts[1].trim();
+    private static boolean isSpace(char c) {
+        return c <= ' ';
+    }
+
+    private static int skipSpaces(String input, int from, int to) {
+        while (from < to && isSpace(input.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int skipWord(String input, int from, int to) {
+        while (from < to && !isSpace(input.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(String input, int from, int to) {
+        while (to > from && isSpace(input.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Returns {@code input[from, to)} without surrounding whitespace.
+     */
+    private static String slice(String input, int from, int to) {
+        int start = skipSpaces(input, from, to);
+        return input.substring(start, trimEnd(input, start, to));
+    }
+
+    /**
+     * Returns where {@code marker} first occurs entirely inside {@code input[from, to)}, or -1.
+     */
+    private static int indexOf(String input, String marker, int from, int to) {
+        int at = input.indexOf(marker, from);
+        return at >= 0 && at + marker.length() <= to ? at : -1;
+    }
+
+    /**
+     * Returns the start and end offsets of the whitespace-separated tokens in {@code input[from, to)},
+     * as consecutive pairs.
+     */
+    private static int[] tokenBounds(String input, int from, int to) {
+        int[] bounds = new int[8];
+        int count = 0;
+        for (int start = skipSpaces(input, from, to); start < to; start = skipSpaces(input, start, to)) {
+            if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, count * 2);
+            }
+            bounds[count++] = start;
+            start = skipWord(input, start, to);
+            bounds[count++] = start;
+        }
+        return Arrays.copyOf(bounds, count);
     }
 
     /**
      * Parses commands that require an index: mark/unmark/delete.
+     * The task is given by its 1-based number, or by its stable ID as {@code #id}.
+     * Several tasks can be given at once as numbers and ranges ({@code 1,4,9-20}) or as {@code done}.
+     * Only the first word counts, or the selection that starts the arguments, so text after it is ignored
+     * whether or not it contains a comma or dash.
      *
      * @param input Full user input.
+     * @param from Start of the arguments.
+     * @param to End of the arguments.
      * @param type Command type to assign.
      * @return ParsedCommand containing the parsed index.
      * @throws CandyException If index is missing or invalid.
      */
-    private static ParsedCommand parseIndexCommand(String input, CommandType type) throws CandyException {
+    private static ParsedCommand parseIndexCommand(String input, int from, int to, CommandType type)
+            throws CandyException {
         ParsedCommand parsedCommand = new ParsedCommand(type);
-        parsedCommand.index = parseIndex(input);
+        int selectionEnd = selectionEnd(input, from, to);
+        if (from < to && input.charAt(from) == '#') {
+            parsedCommand.id = parseId(input, from + 1, to);
+        } else if (to - from == 4 && input.startsWith("done", from)) {
+            parsedCommand.selection = TaskSelection.done();
+        } else if (selectionEnd >= 0) {
+            parsedCommand.selection = parseSelection(input.substring(from, selectionEnd), type);
+        } else {
+            parsedCommand.index = parseIndex(input, from, to);
+        }
         return parsedCommand;
     }
 
+    /**
+     * Returns where a selection of numbers joined by commas and dashes, such as "1,4,9-20" or "2 - 3, 11",
+     * ends at the start of {@code input[from, to)}, or -1 if the arguments do not start with one. A lone
+     * number is not a selection, and neither is a run followed by anything but whitespace, as in "2-x".
+     */
+    private static int selectionEnd(String input, int from, int to) {
+        int pos = from;
+        boolean hasSeparator = false;
+        while (true) {
+            int digitsEnd = pos;
+            while (digitsEnd < to && Character.isDigit(input.charAt(digitsEnd))) {
+                digitsEnd++;
+            }
+            if (digitsEnd == pos) {
+                return -1;
+            }
+            pos = digitsEnd;
+            int next = skipSpaces(input, pos, to);
+            if (next == to || input.charAt(next) != ',' && input.charAt(next) != '-') {
+                break;
+            }
+            hasSeparator = true;
+            pos = skipSpaces(input, next + 1, to);
+        }
+        boolean isWordEnd = pos == to || isSpace(input.charAt(pos));
+        return hasSeparator && isWordEnd ? pos : -1;
+    }
+
+    /**
+     * Parses a list of task numbers and inclusive ranges, such as "1,4,9-20".
+     *
+     * @param argument Selection text.
+     * @param type Command the selection belongs to, for the error message.
+     * @return Parsed selection.
+     * @throws CandyException If an item is not a number or range of numbers &gt;= 1.
+     */
+    private static TaskSelection parseSelection(String argument, CommandType type) throws CandyException {
+        String format = "Please use format: " + type.name().toLowerCase()
+                + " <task number | #id | from-to,... | done>";
+        TaskSelection selection = new TaskSelection();
+        for (String item : argument.split(",")) {
+            String[] bounds = item.trim().split("\\s*-\\s*", -1);
+            if (bounds.length > 2) {
+                throw new CandyException(format);
+            }
+            try {
+                int from = Integer.parseInt(bounds[0]);
+                int to = bounds.length == 2 ? Integer.parseInt(bounds[1]) : from;
+                if (from < 1 || to < from) {
+                    throw new CandyException("Task ranges must go from a number >= 1 up to a larger one.");
+                }
+                selection.addRange(from, to);
+            } catch (NumberFormatException e) {
+                throw new CandyException(format);
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Parses the digits of a task ID reference such as "#42".
+     *
+     * @param input Full user input.
+     * @param from Start of the digits, just after '#'.
+     * @param to End of the arguments.
+     * @return Task ID.
+     * @throws CandyException If the ID is not a positive number.
+     */
+    private static int parseId(String input, int from, int to) throws CandyException {
+        try {
+            int id = Integer.parseInt(input, from, to, 10);
+            if (id < 1) {
+                throw new CandyException("Task ID must be >= 1.");
+            }
+            return id;
+        } catch (NumberFormatException e) {
+            throw new CandyException("Please enter a valid task ID, e.g. #3.");
+        }
+    }
+
     /**
      * Parses a todo command: todo &lt;description&gt;
      */
-    private static ParsedCommand parseTodo(String input) throws CandyException {
-        String description = getArguments(input);
-        if (description.isEmpty()) {
+    private static ParsedCommand parseTodo(String input, int from, int to) throws CandyException {
+        if (from == to) {
             throw new CandyException("Please use format: todo <task>");
         }
 
         ParsedCommand parsedCommand = new ParsedCommand(CommandType.TODO);
-        parsedCommand.description = description;
+        parsedCommand.description = input.substring(from, to);
         return parsedCommand;
     }
 
     /**
      * Parses a deadline command: deadline &lt;description&gt; /by &lt;yyyy-mm-dd&gt;
      */
-    private static ParsedCommand parseDeadline(String input) throws CandyException {
-        String arguments = getArguments(input);
-        String[] parts = arguments.split(" /by ", 2);
-
-        if (parts.length < 2) {
+    private static ParsedCommand parseDeadline(String input, int from, int to) throws CandyException {
+        int by = indexOf(input, " /by ", from, to);
+        if (by < 0) {
             throw new CandyException("Please use format: deadline <task> /by <yyyy-mm-dd>");
         }
 
-        String description = parts[0].trim();
-        String byDate = parts[1].trim();
+        String description = slice(input, from, by);
+        String byDate = slice(input, by + " /by ".length(), to);
 
         if (description.isEmpty() || byDate.isEmpty()) {
             throw new CandyException("Please use format: deadline <task> /by <yyyy-mm-dd>");
@@ -131,23 +306,22 @@ public class Parser {
     /**
      * Parses an event command: event &lt;description&gt; /from &lt;start&gt; /to &lt;end&gt;
      */
-    private static ParsedCommand parseEvent(String input) throws CandyException {
-        String arguments = getArguments(input);
-        String[] parts = arguments.split(" /from ", 2);
-
-        if (parts.length < 2) {
+    private static ParsedCommand parseEvent(String input, int from, int to) throws CandyException {
+        int fromMarker = indexOf(input, " /from ", from, to);
+        if (fromMarker < 0) {
             throw new CandyException("Please use format: event <task> /from <start> /to <end>");
         }
 
-        String description = parts[0].trim();
+        String description = slice(input, from, fromMarker);
 
-        String[] times = parts[1].split(" /to ", 2);
-        if (times.length < 2) {
+        int timesStart = fromMarker + " /from ".length();
+        int toMarker = indexOf(input, " /to ", timesStart, to);
+        if (toMarker < 0) {
             throw new CandyException("Please use format: event <task> /from <start> /to <end>");
         }
 
-        String fromTime = times[0].trim();
-        String toTime = times[1].trim();
+        String fromTime = slice(input, timesStart, toMarker);
+        String toTime = slice(input, toMarker + " /to ".length(), to);
 
         LocalDate fromDate = parseDate(fromTime);
         LocalDate toDate = parseDate(toTime);
@@ -168,19 +342,150 @@ public class Parser {
     }
 
     /**
-     * Parses a find command: find &lt;keyword&gt;
+     * Parses a list command: list [page] [--page &lt;n&gt;] [--page-size &lt;n&gt;]
+     */
+    private static ParsedCommand parseList(String input, int from, int to) throws CandyException {
+        ParsedCommand parsedCommand = new ParsedCommand(CommandType.LIST);
+        if (from == to) {
+            return parsedCommand;
+        }
+
+        int[] tokens = tokenBounds(input, from, to);
+        int optionStart = 0;
+        if (!input.startsWith("--", tokens[0])) {
+            parsedCommand.page = parsePositive(input, tokens[0], tokens[1], LIST_FORMAT);
+            optionStart = 1;
+        }
+        parsePageOptions(input, tokens, optionStart, parsedCommand, LIST_FORMAT);
+        return parsedCommand;
+    }
+
+    /**
+     * Parses a find command: find &lt;keyword&gt; [--page &lt;n&gt;] [--page-size &lt;n&gt;]
+     * <p>
+     * Paging options are only recognised at the end, so keywords keep their inner spacing.
      */
-    private static ParsedCommand parseFind(String input) throws CandyException {
-        String keyword = getArguments(input);
-        if (keyword.isEmpty()) {
-            throw new CandyException("Please use format: find <keyword>");
+    private static ParsedCommand parseFind(String input, int from, int to) throws CandyException {
+        int[] tokens = tokenBounds(input, from, to);
+        int tokenCount = tokens.length / 2;
+        int keywordTokens = tokenCount;
+        while (keywordTokens >= 2 && isPageOption(input, tokens, keywordTokens - 2)) {
+            keywordTokens -= 2;
+        }
+        if (keywordTokens == 0) {
+            throw new CandyException(FIND_FORMAT);
         }
 
         ParsedCommand parsedCommand = new ParsedCommand(CommandType.FIND);
-        parsedCommand.keyword = keyword;
+        parsedCommand.keyword = input.substring(from, tokens[2 * keywordTokens - 1]);
+        parsePageOptions(input, tokens, keywordTokens, parsedCommand, FIND_FORMAT);
         return parsedCommand;
     }
 
+    /**
+     * Parses a filter command: filter &lt;conditions&gt; [--page &lt;n&gt;] [--page-size &lt;n&gt;]
+     * <p>
+     * The conditions are parsed by {@link TaskFilter#parse(String)}. As with find, paging options are only
+     * recognised at the end.
+     */
+    private static ParsedCommand parseFilter(String input, int from, int to) throws CandyException {
+        int[] tokens = tokenBounds(input, from, to);
+        int conditionTokens = tokens.length / 2;
+        while (conditionTokens >= 2 && isPageOption(input, tokens, conditionTokens - 2)) {
+            conditionTokens -= 2;
+        }
+        if (conditionTokens == 0) {
+            throw new CandyException(FILTER_FORMAT);
+        }
+
+        ParsedCommand parsedCommand = new ParsedCommand(CommandType.FILTER);
+        parsedCommand.keyword = input.substring(from, tokens[2 * conditionTokens - 1]);
+        parsedCommand.filter = TaskFilter.parse(parsedCommand.keyword);
+        parsePageOptions(input, tokens, conditionTokens, parsedCommand, FILTER_FORMAT);
+        return parsedCommand;
+    }
+
+    /**
+     * Parses a search command: search &lt;words&gt; [--top &lt;n&gt;]
+     *
+     * @throws CandyException If the words are missing or too short to compare, or the count is not positive.
+     */
+    private static ParsedCommand parseSearch(String input, int from, int to) throws CandyException {
+        int[] tokens = tokenBounds(input, from, to);
+        int queryTokens = tokens.length / 2;
+        ParsedCommand parsedCommand = new ParsedCommand(CommandType.SEARCH);
+        parsedCommand.limit = DEFAULT_SEARCH_LIMIT;
+        if (queryTokens >= 2 && isToken(input, tokens, queryTokens - 2, "--top")) {
+            try {
+                parsedCommand.limit = Integer.parseInt(input, tokens[2 * queryTokens - 2],
+                        tokens[2 * queryTokens - 1], 10);
+            } catch (NumberFormatException e) {
+                throw new CandyException(SEARCH_FORMAT);
+            }
+            if (parsedCommand.limit < 1) {
+                throw new CandyException("The number of matches must be >= 1.");
+            }
+            queryTokens -= 2;
+        }
+        if (queryTokens == 0) {
+            throw new CandyException(SEARCH_FORMAT);
+        }
+
+        parsedCommand.keyword = input.substring(from, tokens[2 * queryTokens - 1]);
+        if (parsedCommand.keyword.length() < FindIndex.MIN_QUERY_LENGTH) {
+            throw new CandyException("Please search with at least " + FindIndex.MIN_QUERY_LENGTH + " characters.");
+        }
+        return parsedCommand;
+    }
+
+    private static boolean isPageOption(String input, int[] tokens, int token) {
+        return isToken(input, tokens, token, "--page") || isToken(input, tokens, token, "--page-size");
+    }
+
+    private static boolean isToken(String input, int[] tokens, int token, String word) {
+        int start = tokens[2 * token];
+        return tokens[2 * token + 1] - start == word.length() && input.startsWith(word, start);
+    }
+
+    /**
+     * Reads {@code --page <n>} and {@code --page-size <n>} pairs from the tokens starting at {@code start}.
+     * Asking for a page size alone shows the first page.
+     *
+     * @throws CandyException If an option is unknown, has no value, or the value is not a positive number.
+     */
+    private static void parsePageOptions(String input, int[] tokens, int start, ParsedCommand parsedCommand,
+            String format) throws CandyException {
+        int tokenCount = tokens.length / 2;
+        for (int i = start; i < tokenCount; i += 2) {
+            if (i + 1 >= tokenCount) {
+                throw new CandyException(format);
+            }
+            int value = parsePositive(input, tokens[2 * i + 2], tokens[2 * i + 3], format);
+            if (isToken(input, tokens, i, "--page")) {
+                parsedCommand.page = value;
+            } else if (isToken(input, tokens, i, "--page-size")) {
+                parsedCommand.pageSize = value;
+            } else {
+                throw new CandyException(format);
+            }
+        }
+        if (parsedCommand.page == 0 && start < tokenCount) {
+            parsedCommand.page = 1;
+        }
+    }
+
+    private static int parsePositive(String input, int from, int to, String format) throws CandyException {
+        try {
+            int value = Integer.parseInt(input, from, to, 10);
+            if (value < 1) {
+                throw new CandyException("Page numbers and sizes must be >= 1.");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new CandyException(format);
+        }
+    }
+
     /**
      * Parses a 1-based task number from input (e.g., "mark 2") and converts it to 0-based index.
      *
@@ -189,13 +494,22 @@ public class Parser {
      * @throws CandyException If task number is missing, non-numeric, or &lt; 1.
      */
     public static int parseIndex(String input) throws CandyException {
-        String[] parts = input.trim().split("\\s+");
-        if (parts.length < 2) {
+        int end = trimEnd(input, 0, input.length());
+        int wordEnd = skipWord(input, skipSpaces(input, 0, end), end);
+        return parseIndex(input, skipSpaces(input, wordEnd, end), end);
+    }
+
+    /**
+     * Parses the 1-based task number that starts the arguments {@code input[from, to)};
+     * anything after it is ignored.
+     */
+    private static int parseIndex(String input, int from, int to) throws CandyException {
+        if (from == to) {
             throw new CandyException("Please provide a task number.");
         }
 
         try {
-            int oneBased = Integer.parseInt(parts[1]);
+            int oneBased = Integer.parseInt(input, from, skipWord(input, from, to), 10);
             int index = oneBased - 1;
 
             if (index < 0) {
@@ -225,52 +539,114 @@ public class Parser {
 
     /**
      * Converts a saved file line into a {@link Task}.
+     * <p>
+     * The line may start with the ID of the task, as {@link #toSavedLine(Task)} writes it; the task then
+     * has that ID. Lines without one, as in files written before IDs were saved, give tasks with no ID.
      *
      * @param line One line from the save file.
      * @return Task object, or null if line format is invalid.
      * @throws CandyException If date format is invalid.
      */
     public static Task parseLine(String line) throws CandyException {
-        String[] parts = line.split("\\s*\\|\\s*");
+        String[] parts = splitFields(line);
+        int id = parts.length > 0 ? parseSavedId(parts[0]) : -1;
+        if (id >= 0) {
+            parts = Arrays.copyOfRange(parts, 1, parts.length);
+        }
         if (parts.length < 3) {
             return null;
         }
 
-        String type = parts[0].trim();
-        boolean isDone = parts[1].trim().equals("1");
-        String description = parts[2].trim();
+        String type = parts[0];
+        boolean isDone = parts[1].equals("1");
+        String description = parts[2];
 
         Task task;
         switch (type) {
         case "T":
-            task = new Todo(description);
+            task = new Todo(description, isDone);
             break;
 
         case "D":
             if (parts.length < 4) {
                 return null;
             }
-            LocalDate by = parseDate(parts[3].trim());
-            task = new Deadline(description, by);
+            LocalDate by = parseDate(parts[3]);
+            task = new Deadline(description, by, isDone);
             break;
 
         case "E":
             if (parts.length < 5) {
                 return null;
             }
-            task = new Event(description, parts[3].trim(), parts[4].trim());
+            task = new Event(description, parts[3], parts[4], isDone);
             break;
 
         default:
             return null;
         }
 
-        if (isDone) {
-            task.markDone();
+        if (id > 0) {
+            task.setId(id);
         }
         return task;
     }
 
+    /**
+     * Reads the leading ID field of a save-file line.
+     *
+     * @param field First field of the line, trimmed.
+     * @return The ID, or -1 if the field is not one.
+     */
+    private static int parseSavedId(String field) {
+        if (field.isEmpty() || field.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            if (field.charAt(i) < '0' || field.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(field);
+    }
+
+    /**
+     * Splits a save-file line at {@code '|'} and trims each field.
+     * Like {@link String#split(String)}, trailing empty fields are dropped.
+     *
+     * @param line One line from the save file.
+     * @return Trimmed fields.
+     */
+    private static String[] splitFields(String line) {
+        ArrayList<String> fields = new ArrayList<>(5);
+        int nonEmptyCount = 0;
+        int start = 0;
+        while (true) {
+            int end = line.indexOf('|', start);
+            String field = (end < 0 ? line.substring(start) : line.substring(start, end)).trim();
+            fields.add(field);
+            if (!field.isEmpty()) {
+                nonEmptyCount = fields.size();
+            }
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        return fields.subList(0, nonEmptyCount).toArray(new String[0]);
+    }
+
+    /**
+     * Converts a {@link Task} into one line of the save file: its ID followed by {@link #toLine(Task)},
+     * as in {@code 12 | T | 0 | read book}.
+     *
+     * @param task Task to convert.
+     * @return Save-file line.
+     */
+    public static String toSavedLine(Task task) {
+        return task.getId() + " | " + toLine(task);
+    }
+
     /**
      * Converts a {@link Task} into one storage line.
      *
@@ -278,6 +654,10 @@ public class Parser {
      * @return Storage line.
      */
     public static String toLine(Task task) {
+        if (task instanceof SavedTask) {
+            // Unchanged since loading, so its original line is still right.
+            return ((SavedTask) task).line();
+        }
         String done = task.isDone() ? "1" : "0";
 
         if (task instanceof Todo) {
@@ -0,0 +1,88 @@
+package candy;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A task from a text save file that has not been decoded yet.
+ * <p>
+ * It points at its line in the bytes read for its part of the file and knows only its completion status.
+ * The line is decoded into a {@link Todo}, {@link Deadline} or {@link Event} the first time the task is
+ * shown, changed or sorted (see {@link #materialize()}), and that task is kept from then on.
+ * <p>
+ * A saved task in a {@link TaskList} is never changed in place: marking it swaps in a regular task
+ * through {@link #withDone(boolean)}. Any task still of this class is therefore unchanged since it was
+ * loaded, and {@link Parser#toLine(Task)} writes its original line back without decoding it.
+ */
+final class SavedTask extends Task {
+    private final byte[] contents;
+    private final int start;
+    private final int end;
+
+    /** The decoded task, or null until {@link #materialize()} first runs. */
+    private volatile Task decoded;
+
+    /**
+     * Creates a task for a line that has already been checked to decode without errors.
+     *
+     * @param contents Bytes holding the line, such as the chunk of the save file it was read with; shared.
+     * @param start Offset of the first byte of the line.
+     * @param end Offset just after the last byte of the line, without its line break.
+     * @param isDone Completion status written in the line.
+     */
+    SavedTask(byte[] contents, int start, int end, boolean isDone) {
+        super(null, isDone);
+        this.contents = contents;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Decodes the line once and returns the same task on every later call. Safe to call from any thread.
+     */
+    @Override
+    Task materialize() {
+        Task task = decoded;
+        if (task == null) {
+            task = decode();
+            decoded = task;
+        }
+        return task;
+    }
+
+    /**
+     * Returns the line this task was loaded from.
+     */
+    String line() {
+        return new String(contents, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the description, decoding the line without keeping the result if it has not been
+     * materialized yet. Building the find index reads every description this way.
+     */
+    @Override
+    public String getDescription() {
+        Task task = decoded;
+        return (task != null ? task : decode()).getDescription();
+    }
+
+    @Override
+    protected Task copy(boolean isDone) {
+        return materialize().copy(isDone);
+    }
+
+    @Override
+    public String toString() {
+        return materialize().toString();
+    }
+
+    private Task decode() {
+        try {
+            Task task = TaskFileReader.parseRecord(contents, start, end);
+            task.setId(getId());
+            return task;
+        } catch (CandyException e) {
+            throw new IllegalStateException("Saved task no longer decodes: " + line(), e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package candy;
+
+/**
+ * One task found by {@link TaskList#search(String, int)}, with how closely it matched.
+ */
+public class SearchResult {
+    private final Task task;
+    private final double score;
+
+    /**
+     * Creates a search result.
+     *
+     * @param task Task that matched.
+     * @param score Similarity to the query, from 0 (nothing shared) to 1 (the same trigrams).
+     */
+    public SearchResult(Task task, double score) {
+        this.task = task;
+        this.score = score;
+    }
+
+    /**
+     * Returns the task that matched the query.
+     *
+     * @return Matching task.
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * Returns how closely the task matched the query. Results are ranked by this score, highest first.
+     *
+     * @return Similarity to the query, from 0 (nothing shared) to 1 (the same trigrams).
+     */
+    public double getScore() {
+        return score;
+    }
+}
@@ -1,31 +1,158 @@
 package candy;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Handles loading and saving task data to the local file system.
+ * <p>
+ * By default every change rewrites the whole data file. In journal mode (see {@link StorageConfig#isJournaled})
+ * each change is instead appended as one small record to a journal file next to the data file.
+ * Loading replays the snapshot and then the journal, and once the journal grows past
+ * {@link StorageConfig#journalCompactionBytes} it is folded into a fresh snapshot on a background thread.
+ * <p>
+ * Text snapshots write each task as {@link Parser#toSavedLine(Task)}, so task IDs survive a restart.
+ * They start with a {@code # <seq> <nextId>} header naming the last journal record they include, so records
+ * that are already part of the snapshot are skipped on replay, and the next free task ID, so IDs of deleted
+ * tasks are not handed out again.
+ * <p>
+ * Journal records look like {@code 12 | M | #4}: a sequence number, an operation
+ * ({@code A}dd, {@code M}ark, {@code U}nmark or {@code X} for delete) and its argument.
+ * An {@code A} record holds the saved line of the new task, ID included. The argument of {@code M},
+ * {@code U} and {@code X} lists task IDs, with runs collapsed into ranges ({@code #2-499,610}).
+ * Journals written before IDs were saved list zero-based positions instead, without the {@code #};
+ * they still replay.
+ * <p>
+ * Under {@link Durability#SYNC} changes are written on the caller's thread. The other durability levels
+ * only queue the change and let a {@link StorageWriter} thread coalesce bursts into one write;
+ * {@link #flush()} waits for the queue to drain, and {@link #close()} (called by {@link Candy} on {@code bye}
+ * and at JVM shutdown) also stops the writer thread. A queued write that fails goes back to the front of
+ * the queue, together with everything queued after it, and is retried with the next change; {@link #flush()}
+ * retries it once more and prints a warning if it still fails. The journal and its bookkeeping are only
+ * touched while holding the lock on the queue.
+ * <p>
+ * Snapshots are written in {@link StorageConfig#format}. Loading recognises the {@link BinaryTaskCodec}
+ * magic number and otherwise reads the file as text, so switching formats needs no migration step;
+ * {@link #convert(String, String, StorageFormat)} rewrites an existing file explicitly.
+ * <p>
+ * With {@link StorageConfig#isCompressed} snapshots of either format are streamed through gzip as they are
+ * written, never held in memory whole. Loading recognises the gzip magic number and decompresses while it
+ * reads. The journal is never compressed, since it is appended to a record at a time.
  */
 public class Storage {
+    private static final String SNAPSHOT_HEADER = "# ";
+
+    /** Marks a journal argument that lists task IDs rather than positions. */
+    private static final String ID_PREFIX = "#";
+
+    /** Buffer size for compressing and decompressing snapshots. */
+    private static final int ZIP_BUFFER_SIZE = 64 * 1024;
+
     private final Path filePath;
+    private final Path journalPath;
+    private final Path rotatedJournalPath;
+    private final StorageConfig config;
+    private final Metrics metrics;
+
+    /**
+     * Journal records and compactions waiting for the writer thread, in the order they were recorded.
+     * Its lock also guards the open journal and the fields describing it.
+     */
+    private final List<Object> pending = new ArrayList<>();
+
+    private FileChannel journal;
+
+    /** Size of the journal in UTF-8 bytes, counting records still queued for the writer. */
+    private long journalBytes;
+    private long nextSeq = 1;
+    private long snapshotSeq;
+    /** Next free task ID according to the snapshot header, applied by {@link #replayJournal(TaskList)}. */
+    private int snapshotNextId = 1;
+    private boolean hasStaleJournal;
+
+    /** Task list to write in full on the next background flush, or null if the data file is up to date. */
+    private TaskList dirtyTasks;
+    /** True from the start of a compaction until its snapshot is in place, even across failed attempts. */
+    private volatile boolean isCompacting;
+    /** Whether the last background write failed, leaving its changes queued for another attempt. */
+    private boolean isWriteFailing;
+    private StorageWriter writer;
+
+    /** True between {@link #beginBatch()} and {@link #endBatch(TaskList)}, while changes are not recorded. */
+    private boolean isBatching;
 
     /**
-     * Creates a Storage object using the given file path.
+     * Creates a Storage object using the given file path and the default settings.
      *
      * @param filePath Path to the data file.
      */
     public Storage(String filePath) {
+        this(filePath, new StorageConfig());
+    }
+
+    /**
+     * Creates a Storage object using the given file path and settings.
+     *
+     * @param filePath Path to the data file.
+     * @param config Settings controlling how changes are persisted.
+     */
+    public Storage(String filePath, StorageConfig config) {
+        this(filePath, config, new Metrics());
+    }
+
+    /**
+     * Creates a Storage object that reports persistence costs to the given metrics.
+     *
+     * @param filePath Path to the data file.
+     * @param config Settings controlling how changes are persisted.
+     * @param metrics Metrics to record persist time and written bytes in.
+     */
+    public Storage(String filePath, StorageConfig config, Metrics metrics) {
         this.filePath = Paths.get(filePath);
+        this.journalPath = Paths.get(filePath + ".journal");
+        this.rotatedJournalPath = Paths.get(filePath + ".journal.old");
+        this.config = config;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics this storage reports to.
+     *
+     * @return Metrics.
+     */
+    public Metrics getMetrics() {
+        return metrics;
     }
 
     /**
      * Loads all saved task lines from the data file.
      * <p>
      * If the file does not exist, a new file is created and an empty list is returned.
+     * A snapshot header written by journal compaction is consumed here and not returned,
+     * and a binary snapshot is returned in text form. A compressed file is decompressed first.
      *
      * @return List of lines read from the file.
      * @throws IOException If an I/O error occurs during reading.
@@ -36,26 +163,928 @@ public class Storage {
             Files.createFile(filePath);
             return Collections.emptyList();
         }
-        return Files.readAllLines(filePath);
+        List<String> lines;
+        try (InputStream in = openData(isCompressed())) {
+            if (hasBinaryMagic(in)) {
+                TaskList tasks = new TaskList();
+                snapshotSeq = BinaryTaskCodec.read(in, tasks);
+                nextSeq = snapshotSeq + 1;
+                snapshotNextId = tasks.getNextId();
+                List<String> savedLines = new ArrayList<>(tasks.size());
+                for (Task task : tasks.snapshot()) {
+                    savedLines.add(Parser.toSavedLine(task));
+                }
+                return savedLines;
+            }
+            lines = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+            }
+        }
+        if (!lines.isEmpty() && lines.get(0).startsWith(SNAPSHOT_HEADER)) {
+            readHeader(lines.get(0).substring(SNAPSHOT_HEADER.length()));
+            return lines.subList(1, lines.size());
+        }
+        return lines;
+    }
+
+    /**
+     * Streams the data file into {@code tasks} and then replays any journal records on top.
+     * <p>
+     * Text files are read by a {@link TaskFileLoader}: small ones are streamed a line at a time, large ones
+     * are parsed in parallel chunks. Compressed files are decompressed and streamed a line at a time.
+     * With {@link StorageConfig#isLazy} each line is only checked and added
+     * as a {@link SavedTask} that decodes itself when first used. Lines that do not decode are skipped and
+     * listed in {@link LoadStats#getProblems()}. If the file does not exist, a new empty file is created.
+     *
+     * @param tasks Task list to fill.
+     * @return Summary of what was read and how long it took.
+     * @throws IOException If an I/O error occurs during reading.
+     */
+    public LoadStats loadTasks(TaskList tasks) throws IOException {
+        long start = System.nanoTime();
+        ensureParentExists();
+        if (!Files.exists(filePath)) {
+            Files.createFile(filePath);
+        }
+
+        boolean isCompressed = isCompressed();
+        TaskFileLoader loader = null;
+        try (InputStream in = openData(isCompressed)) {
+            if (hasBinaryMagic(in)) {
+                snapshotSeq = BinaryTaskCodec.read(in, tasks);
+                nextSeq = snapshotSeq + 1;
+                int recordCount = tasks.size();
+                replayJournal(tasks);
+                return new LoadStats(recordCount, tasks.size(), Files.size(filePath), System.nanoTime() - start);
+            }
+            if (isCompressed) {
+                loader = TaskFileLoader.load(in, SNAPSHOT_HEADER, config.isLazy, config.loadParallelism);
+            }
+        }
+        if (loader == null) {
+            loader = TaskFileLoader.load(filePath, SNAPSHOT_HEADER, config.isLazy, config.loadParallelism);
+        }
+        if (loader.getHeader() != null) {
+            readHeader(loader.getHeader());
+        }
+        tasks.addAll(loader.getTasks());
+        replayJournal(tasks);
+        long byteCount = isCompressed ? Files.size(filePath) : loader.getByteCount();
+        return new LoadStats(loader.getLineCount(), tasks.size(), byteCount,
+                System.nanoTime() - start, loader.getProblems());
+    }
+
+    /**
+     * Applies journal records written after the last snapshot to the given task list.
+     * Must be called after the snapshot from {@link #loadLines()} has been loaded into {@code tasks};
+     * {@link #loadTasks(TaskList)} does this itself.
+     * <p>
+     * Records that cannot be parsed or applied (for example a half-written last line) are skipped.
+     *
+     * @param tasks Task list holding the snapshot contents.
+     * @throws IOException If a journal file cannot be read.
+     */
+    public void replayJournal(TaskList tasks) throws IOException {
+        // Tasks deleted before the snapshot keep their IDs from being handed out again.
+        tasks.reserveIdsBelow(snapshotNextId);
+        boolean hasRotated = Files.exists(rotatedJournalPath);
+        if (hasRotated) {
+            replayJournalFile(rotatedJournalPath, tasks);
+        }
+        if (Files.exists(journalPath)) {
+            replayJournalFile(journalPath, tasks);
+        }
+        synchronized (pending) {
+            hasStaleJournal = hasRotated || Files.exists(journalPath);
+            journalBytes = Files.exists(journalPath) ? Files.size(journalPath) : 0;
+
+            if (config.isJournaled && hasRotated) {
+                // A compaction was interrupted; finish it now so only one journal remains.
+                try {
+                    writeSnapshot(tasks, nextSeq - 1);
+                    Files.deleteIfExists(rotatedJournalPath);
+                    Files.deleteIfExists(journalPath);
+                    journalBytes = 0;
+                } catch (IOException e) {
+                    // Both journals stay; the next compaction appends the live one to the rotated one.
+                    System.out.println("Warning: could not compact data.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Persists a newly added task, which is the last task in {@code tasks}.
+     *
+     * @param tasks Task list after the add.
+     * @param task The added task.
+     */
+    public void recordAdd(TaskList tasks, Task task) {
+        if (isBatching) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (config.isJournaled) {
+            appendRecord("A", Parser.toSavedLine(task), tasks);
+        } else {
+            saveSnapshot(tasks);
+        }
+        metrics.addPersistNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Persists marking a task as done.
+     *
+     * @param tasks Task list after the change.
+     * @param id ID of the marked task.
+     */
+    public void recordMark(TaskList tasks, int id) {
+        recordIdChange("M", tasks, new int[] {id});
+    }
+
+    /**
+     * Persists marking several tasks as done, as one change.
+     *
+     * @param tasks Task list after the change.
+     * @param ids IDs of the marked tasks, in ascending order.
+     */
+    public void recordMarkAll(TaskList tasks, int[] ids) {
+        recordIdChange("M", tasks, ids);
+    }
+
+    /**
+     * Persists marking a task as not done.
+     *
+     * @param tasks Task list after the change.
+     * @param id ID of the unmarked task.
+     */
+    public void recordUnmark(TaskList tasks, int id) {
+        recordIdChange("U", tasks, new int[] {id});
+    }
+
+    /**
+     * Persists marking several tasks as not done, as one change.
+     *
+     * @param tasks Task list after the change.
+     * @param ids IDs of the unmarked tasks, in ascending order.
+     */
+    public void recordUnmarkAll(TaskList tasks, int[] ids) {
+        recordIdChange("U", tasks, ids);
+    }
+
+    /**
+     * Persists deleting a task.
+     *
+     * @param tasks Task list after the delete.
+     * @param id ID of the deleted task.
+     */
+    public void recordDelete(TaskList tasks, int id) {
+        recordIdChange("X", tasks, new int[] {id});
+    }
+
+    /**
+     * Persists deleting several tasks, as one change.
+     *
+     * @param tasks Task list after the delete.
+     * @param ids IDs of the deleted tasks, in ascending order.
+     */
+    public void recordDeleteAll(TaskList tasks, int[] ids) {
+        recordIdChange("X", tasks, ids);
+    }
+
+    /**
+     * Persists the list after {@link TaskList#undo()} or {@link TaskList#redo()} swapped in another version.
+     * <p>
+     * Journal records describe changes one at a time and cannot express going back, so both modes write the
+     * whole list. In journal mode it becomes a fresh snapshot that retires the journal, as in
+     * {@link #checkpoint(TaskList)}.
+     *
+     * @param tasks Task list after the undo or redo.
+     */
+    public void recordRestore(TaskList tasks) {
+        if (isBatching) {
+            return;
+        }
+        if (config.isJournaled) {
+            checkpoint(tasks);
+            return;
+        }
+        long start = System.nanoTime();
+        saveSnapshot(tasks);
+        metrics.addPersistNanos(System.nanoTime() - start);
     }
 
     /**
-     * Saves the given list of task lines to the data file.
+     * Persists the whole task list and waits until it is on disk.
+     * <p>
+     * In journal mode every change is already recorded, so this only waits for queued writes
+     * and any background compaction to finish.
+     *
+     * @param tasks Task list to save.
+     */
+    public void save(TaskList tasks) {
+        long start = System.nanoTime();
+        if (!config.isJournaled) {
+            saveSnapshot(tasks);
+        }
+        flush();
+        metrics.addPersistNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Stops persisting changes one by one. The {@code record...} methods do nothing until
+     * {@link #endBatch(TaskList)}, so a long run of commands can be saved with one write.
+     * Changes made in between are lost if the process dies before a {@link #checkpoint(TaskList)}.
+     */
+    public void beginBatch() {
+        isBatching = true;
+    }
+
+    /**
+     * Persists everything changed since {@link #beginBatch()} with one {@link #checkpoint(TaskList)} and
+     * goes back to persisting every change.
+     *
+     * @param tasks Task list to save.
+     */
+    public void endBatch(TaskList tasks) {
+        checkpoint(tasks);
+        isBatching = false;
+    }
+
+    /**
+     * Writes the whole task list as a new snapshot and waits until it is on disk.
+     * In journal mode the snapshot covers every record so far, so the journal is deleted.
+     *
+     * @param tasks Task list to save.
+     */
+    public void checkpoint(TaskList tasks) {
+        long start = System.nanoTime();
+        flush();
+        try {
+            closeJournal();
+            writeSnapshot(tasks, nextSeq - 1);
+            synchronized (pending) {
+                // The snapshot holds every change queued so far, which must not be written over it later.
+                pending.clear();
+                isCompacting = false;
+                isWriteFailing = false;
+                hasStaleJournal = true;
+                clearStaleJournal();
+                journalBytes = 0;
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: could not save data.");
+        }
+        metrics.addPersistNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Blocks until every change recorded so far has been written out. Changes left queued by a failed
+     * background write are tried once more, and a warning is printed if they still cannot be written.
+     */
+    public void flush() {
+        StorageWriter currentWriter;
+        synchronized (pending) {
+            currentWriter = writer;
+            if (!pending.isEmpty() || dirtyTasks != null) {
+                currentWriter = getWriter();
+                currentWriter.signal();
+            }
+        }
+        if (currentWriter != null) {
+            currentWriter.flush();
+        }
+        synchronized (pending) {
+            if (isWriteFailing) {
+                System.out.println("Warning: could not save data; it will be retried with the next change.");
+            }
+        }
+    }
+
+    /**
+     * Writes out every queued change, stops the writer thread and closes the journal.
+     * A change recorded afterwards starts a new writer, so closing twice is harmless.
+     */
+    public void close() {
+        flush();
+        StorageWriter stoppedWriter;
+        synchronized (pending) {
+            stoppedWriter = writer;
+            writer = null;
+        }
+        if (stoppedWriter != null) {
+            stoppedWriter.close();
+        }
+        try {
+            closeJournal();
+        } catch (IOException e) {
+            System.out.println("Warning: could not save data.");
+        }
+    }
+
+    /**
+     * Saves the given list of task lines to the data file in the text format.
      *
      * @param lines List of task lines to be written.
      */
     public void saveLines(List<String> lines) {
         try {
-            ensureParentExists();
-            if (!Files.exists(filePath)) {
-                Files.createFile(filePath);
-            }
-            Files.write(filePath, lines);
+            writeFile(out -> writeLines(out, lines, null));
+            clearStaleJournal();
+        } catch (IOException e) {
+            System.out.println("Warning: could not save data.");
+        }
+    }
+
+    /**
+     * Converts a data file (and any journal next to it) into a single snapshot in the given format.
+     *
+     * @param sourcePath Data file to read; its format is detected automatically.
+     * @param targetPath File to write. May be the same as {@code sourcePath}.
+     * @param format Format to write.
+     * @return Number of tasks converted.
+     * @throws IOException If reading or writing fails.
+     * @throws CandyException If a line of the source does not decode; nothing is written in that case.
+     */
+    public static int convert(String sourcePath, String targetPath, StorageFormat format)
+            throws IOException, CandyException {
+        return convert(sourcePath, targetPath, format, false);
+    }
+
+    /**
+     * Converts a data file (and any journal next to it) into a single snapshot in the given format,
+     * optionally compressed.
+     *
+     * @param sourcePath Data file to read; its format and compression are detected automatically.
+     * @param targetPath File to write. May be the same as {@code sourcePath}.
+     * @param format Format to write.
+     * @param isCompressed Whether to compress the written file.
+     * @return Number of tasks converted.
+     * @throws IOException If reading or writing fails.
+     * @throws CandyException If a line of the source does not decode; nothing is written in that case.
+     */
+    public static int convert(String sourcePath, String targetPath, StorageFormat format, boolean isCompressed)
+            throws IOException, CandyException {
+        TaskList tasks = new TaskList();
+        Storage source = new Storage(sourcePath);
+        List<String> problems = source.loadTasks(tasks).getProblems();
+        if (!problems.isEmpty()) {
+            throw new CandyException(problems.get(0));
+        }
+
+        StorageConfig config = new StorageConfig();
+        config.format = format;
+        config.isCompressed = isCompressed;
+        Storage target = new Storage(targetPath, config);
+        target.writeSnapshot(tasks, 0);
+        target.hasStaleJournal = true;
+        target.clearStaleJournal();
+        return tasks.size();
+    }
+
+    /**
+     * Writes the whole task list as a plain (non-journal) snapshot.
+     */
+    private void saveTasks(TaskList tasks) {
+        try {
+            writeSnapshot(tasks, nextSeq - 1);
+            clearStaleJournal();
         } catch (IOException e) {
             System.out.println("Warning: could not save data.");
         }
     }
 
+    private void clearStaleJournal() throws IOException {
+        synchronized (pending) {
+            if (hasStaleJournal) {
+                // The full file now contains everything an older journal recorded.
+                Files.deleteIfExists(rotatedJournalPath);
+                Files.deleteIfExists(journalPath);
+                hasStaleJournal = false;
+            }
+        }
+    }
+
+    private void recordIdChange(String op, TaskList tasks, int[] ids) {
+        if (isBatching) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (config.isJournaled) {
+            appendRecord(op, ID_PREFIX + formatRanges(ids), tasks);
+        } else {
+            saveSnapshot(tasks);
+        }
+        metrics.addPersistNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Rewrites the data file with the whole task list, either now or on the writer thread.
+     * Queued rewrites collapse into one, which reads the task list when it runs.
+     */
+    private void saveSnapshot(TaskList tasks) {
+        if (config.durability == Durability.SYNC) {
+            saveTasks(tasks);
+            return;
+        }
+        synchronized (pending) {
+            dirtyTasks = tasks;
+        }
+        getWriter().signal();
+    }
+
+    /**
+     * Appends one record to the journal and starts a compaction if the journal has grown too large.
+     */
+    private void appendRecord(String op, String argument, TaskList tasks) {
+        String record = nextSeq + " | " + op + " | " + argument + "\n";
+        nextSeq++;
+        boolean isCompactionDue;
+        synchronized (pending) {
+            journalBytes += utf8Length(record);
+            isCompactionDue = journalBytes >= config.journalCompactionBytes && !isCompacting;
+        }
+
+        if (config.durability == Durability.SYNC) {
+            try {
+                writeJournal(record);
+            } catch (IOException e) {
+                System.out.println("Warning: could not save data.");
+                return;
+            }
+        } else {
+            synchronized (pending) {
+                pending.add(record);
+            }
+            getWriter().signal();
+        }
+
+        if (isCompactionDue) {
+            startCompaction(tasks);
+        }
+    }
+
+    /**
+     * Queues a snapshot of {@code tasks} for the writer thread, which then retires the current journal.
+     * <p>
+     * The task order is captured here so the background thread never walks the live task list.
+     * Under {@link Durability#SYNC} the journal is rotated right away; otherwise the writer rotates it
+     * after writing the records queued ahead of the compaction.
+     * If the process dies before the snapshot is in place, the rotated journal is replayed on the next load.
+     */
+    private void startCompaction(TaskList tasks) {
+        List<Task> snapshot = tasks.snapshot();
+        Compaction compaction = new Compaction(snapshot, tasks.getNextId(), nextSeq - 1);
+        if (config.durability == Durability.SYNC) {
+            try {
+                rotateJournal();
+            } catch (IOException e) {
+                System.out.println("Warning: could not compact data.");
+                return;
+            }
+            compaction.isRotated = true;
+        }
+
+        isCompacting = true;
+        synchronized (pending) {
+            journalBytes = 0;
+            pending.add(compaction);
+        }
+        getWriter().signal();
+    }
+
+    /**
+     * Writes out everything queued for the writer thread. Runs on the writer thread only.
+     * <p>
+     * If anything fails, the first item not written and all items after it go back to the front of the
+     * queue, in order, so a later drain writes them before anything recorded since. A journal write that
+     * fails part way is cut back first, so retrying it does not leave half a record behind.
+     */
+    private void drainPending() {
+        List<Object> items;
+        TaskList tasks;
+        synchronized (pending) {
+            items = new ArrayList<>(pending);
+            pending.clear();
+            tasks = dirtyTasks;
+            dirtyTasks = null;
+        }
+
+        int writtenItems = 0;
+        try {
+            if (tasks != null) {
+                writeSnapshot(tasks, nextSeq - 1);
+                clearStaleJournal();
+                tasks = null;
+            }
+            StringBuilder batch = new StringBuilder();
+            for (int i = 0; i < items.size(); i++) {
+                Object item = items.get(i);
+                if (item instanceof Compaction) {
+                    writeJournal(batch.toString());
+                    batch.setLength(0);
+                    writtenItems = i;
+                    compact((Compaction) item);
+                    writtenItems = i + 1;
+                } else {
+                    batch.append((String) item);
+                }
+            }
+            writeJournal(batch.toString());
+            writtenItems = items.size();
+            synchronized (pending) {
+                isWriteFailing = false;
+            }
+        } catch (Throwable e) {
+            synchronized (pending) {
+                pending.addAll(0, items.subList(writtenItems, items.size()));
+                if (dirtyTasks == null) {
+                    dirtyTasks = tasks;
+                }
+                isWriteFailing = true;
+            }
+        }
+    }
+
+    /**
+     * Rotates the journal unless an earlier attempt already did, then writes the snapshot. Until the
+     * snapshot is in place the compaction stays in progress, so no other compaction rotates the journal.
+     */
+    private void compact(Compaction compaction) throws IOException {
+        if (!compaction.isRotated) {
+            rotateJournal();
+            compaction.isRotated = true;
+        }
+        writeSnapshot(compaction.tasks, compaction.nextId, compaction.seq);
+        Files.deleteIfExists(rotatedJournalPath);
+        isCompacting = false;
+    }
+
+    /**
+     * Moves the live journal aside for a compaction. If an earlier rotated journal is still waiting for
+     * its snapshot, the live journal is appended to it instead, so the records only it holds are kept.
+     * Should the process die between appending and deleting the live journal, replay skips the records
+     * that then appear in both.
+     */
+    private void rotateJournal() throws IOException {
+        synchronized (pending) {
+            closeJournal();
+            if (!Files.exists(journalPath)) {
+                return;
+            }
+            if (!Files.exists(rotatedJournalPath)) {
+                Files.move(journalPath, rotatedJournalPath);
+                return;
+            }
+            try (FileChannel rotated = FileChannel.open(rotatedJournalPath, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                OutputStream out = Channels.newOutputStream(rotated);
+                if (!endsWithLineBreak(rotatedJournalPath)) {
+                    // Keep a record cut short by a crash from swallowing the first appended one.
+                    out.write('\n');
+                }
+                Files.copy(journalPath, out);
+                if (isForced()) {
+                    rotated.force(false);
+                }
+            }
+            Files.delete(journalPath);
+        }
+    }
+
+    private static boolean endsWithLineBreak(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    /**
+     * Returns the writer thread, starting a new one if there is none or the last one has stopped.
+     */
+    private StorageWriter getWriter() {
+        synchronized (pending) {
+            if (writer == null || !writer.isAlive()) {
+                boolean isPeriodic = config.durability == Durability.PERIODIC;
+                writer = new StorageWriter(
+                        isPeriodic ? config.periodicFlushMillis : config.groupCommitDelayMillis,
+                        isPeriodic ? Integer.MAX_VALUE : config.groupCommitMaxBatch,
+                        this::drainPending);
+            }
+            return writer;
+        }
+    }
+
+    private boolean isForced() {
+        return config.durability != Durability.PERIODIC;
+    }
+
+    /**
+     * Appends text to the journal, forcing it to disk unless running under {@link Durability#PERIODIC}.
+     */
+    private void writeJournal(String text) throws IOException {
+        if (text.isEmpty()) {
+            return;
+        }
+        synchronized (pending) {
+            if (journal == null) {
+                ensureParentExists();
+                journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            long start = System.nanoTime();
+            long size = journal.size();
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            try {
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+                if (isForced()) {
+                    journal.force(false);
+                }
+            } catch (IOException e) {
+                try {
+                    journal.truncate(size);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+                throw e;
+            }
+            metrics.recordWrite(System.nanoTime() - start, buffer.capacity());
+        }
+    }
+
+    /**
+     * Atomically replaces the data file with a snapshot of the current state of the given list.
+     */
+    private void writeSnapshot(TaskList tasks, long seq) throws IOException {
+        List<Task> snapshot = tasks.snapshot();
+        // Read after the snapshot, so it is higher than every ID in it.
+        writeSnapshot(snapshot, tasks.getNextId(), seq);
+    }
+
+    /**
+     * Atomically replaces the data file with a snapshot of the given tasks in the configured format.
+     * Text snapshots start with a {@code # <seq> <nextId>} header and write each task with its ID.
+     */
+    private void writeSnapshot(List<Task> tasks, int nextId, long seq) throws IOException {
+        if (config.format == StorageFormat.BINARY) {
+            writeFile(out -> BinaryTaskCodec.write(out, tasks, nextId, seq));
+            return;
+        }
+        List<String> lines = new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return Parser.toSavedLine(tasks.get(index));
+            }
+
+            @Override
+            public int size() {
+                return tasks.size();
+            }
+        };
+        writeFile(out -> writeLines(out, lines, SNAPSHOT_HEADER + seq + " " + nextId));
+    }
+
+    private static void writeLines(OutputStream stream, List<String> lines, String header) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        String separator = System.lineSeparator();
+        if (header != null) {
+            out.write(header);
+            out.write(separator);
+        }
+        for (String line : lines) {
+            out.write(line);
+            out.write(separator);
+        }
+        out.flush();
+    }
+
+    /**
+     * Atomically replaces the data file with whatever {@code content} writes, compressed if configured,
+     * forcing it to disk unless running under {@link Durability#PERIODIC}.
+     */
+    private void writeFile(FileContent content) throws IOException {
+        ensureParentExists();
+        long start = System.nanoTime();
+        long bytes;
+        Path tempPath = Paths.get(filePath + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            if (config.isCompressed) {
+                FastGzipOutputStream zip = new FastGzipOutputStream(out);
+                try {
+                    content.writeTo(zip);
+                    zip.finish();
+                } finally {
+                    zip.end();
+                }
+            } else {
+                content.writeTo(out);
+            }
+            if (isForced()) {
+                channel.force(false);
+            }
+            bytes = channel.size();
+        }
+        Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        metrics.recordWrite(System.nanoTime() - start, bytes);
+    }
+
+    /**
+     * Returns whether the data file starts with the gzip magic number.
+     */
+    private boolean isCompressed() throws IOException {
+        try (InputStream in = Files.newInputStream(filePath)) {
+            byte[] head = new byte[2];
+            int length = in.readNBytes(head, 0, head.length);
+            return length == 2 && (head[0] & 0xff | (head[1] & 0xff) << 8) == GZIPInputStream.GZIP_MAGIC;
+        }
+    }
+
+    /**
+     * Opens the data file for reading, decompressing it on the fly if it is compressed.
+     * The stream supports {@link InputStream#mark(int)}.
+     */
+    private InputStream openData(boolean isCompressed) throws IOException {
+        InputStream in = Files.newInputStream(filePath);
+        if (isCompressed) {
+            in = new GZIPInputStream(in, ZIP_BUFFER_SIZE);
+        }
+        return new BufferedInputStream(in, ZIP_BUFFER_SIZE);
+    }
+
+    /**
+     * Returns whether a stream starts with the binary snapshot magic number, without consuming it.
+     */
+    private static boolean hasBinaryMagic(InputStream in) throws IOException {
+        byte[] head = new byte[4];
+        in.mark(head.length);
+        int length = in.readNBytes(head, 0, head.length);
+        in.reset();
+        return BinaryTaskCodec.hasMagic(head, length);
+    }
+
+    private void replayJournalFile(Path path, TaskList tasks) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                replayRecord(line, tasks);
+            }
+        }
+    }
+
+    private void replayRecord(String record, TaskList tasks) {
+        String[] parts = record.split(" \\| ", 3);
+        if (parts.length < 3) {
+            return;
+        }
+
+        long seq = parseSeq(parts[0]);
+        // Skips records in the snapshot, and records already replayed that an interrupted rotation left
+        // in both journals. Records are always written in sequence order.
+        if (seq <= snapshotSeq || seq < nextSeq) {
+            return;
+        }
+        try {
+            switch (parts[1]) {
+            case "A":
+                Task task = Parser.parseLine(parts[2]);
+                if (task == null) {
+                    return;
+                }
+                tasks.add(task);
+                break;
+            case "M":
+                tasks.markAll(parseTargets(parts[2], tasks));
+                break;
+            case "U":
+                tasks.unmarkAll(parseTargets(parts[2], tasks));
+                break;
+            case "X":
+                tasks.removeAll(parseTargets(parts[2], tasks));
+                break;
+            default:
+                return;
+            }
+        } catch (CandyException | NumberFormatException e) {
+            return;
+        }
+        nextSeq = Math.max(nextSeq, seq + 1);
+    }
+
+    /**
+     * Reads the argument of an {@code M}, {@code U} or {@code X} record as the indexes of the tasks it names.
+     * Records name tasks by ID after {@link #ID_PREFIX}; journals written before IDs were saved list positions.
+     */
+    private static int[] parseTargets(String argument, TaskList tasks) throws CandyException {
+        String text = argument.trim();
+        if (!text.startsWith(ID_PREFIX)) {
+            return parseRanges(text);
+        }
+        int[] indexes = parseRanges(text.substring(ID_PREFIX.length()));
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = tasks.indexOf(indexes[i]);
+        }
+        return indexes;
+    }
+
+    /**
+     * Writes ascending numbers as a comma-separated list, collapsing runs into ranges.
+     */
+    private static String formatRanges(int[] indexes) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < indexes.length; ) {
+            int runEnd = i;
+            while (runEnd + 1 < indexes.length && indexes[runEnd + 1] == indexes[runEnd] + 1) {
+                runEnd++;
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(indexes[i]);
+            if (runEnd > i) {
+                sb.append('-').append(indexes[runEnd]);
+            }
+            i = runEnd + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads numbers written by {@link #formatRanges(int[])}; a single number is the one-element case.
+     */
+    private static int[] parseRanges(String text) {
+        IntList indexes = new IntList();
+        for (String item : text.trim().split(",")) {
+            int dash = item.indexOf('-');
+            int from = Integer.parseInt(dash < 0 ? item : item.substring(0, dash));
+            int to = dash < 0 ? from : Integer.parseInt(item.substring(dash + 1));
+            for (int index = from; index <= to; index++) {
+                indexes.add(index);
+            }
+        }
+        return indexes.toArray();
+    }
+
+    /**
+     * Returns the number of bytes a string takes in UTF-8, without encoding it.
+     */
+    private static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Reads the text after the header prefix: the last journal record included in the snapshot and, in files
+     * written since IDs are saved, the next free task ID.
+     */
+    private void readHeader(String text) {
+        String[] fields = text.trim().split("\\s+");
+        snapshotSeq = parseSeq(fields[0]);
+        nextSeq = snapshotSeq + 1;
+        snapshotNextId = fields.length > 1 ? (int) Math.min(parseSeq(fields[1]), Integer.MAX_VALUE) : 1;
+    }
+
+    private static long parseSeq(String text) {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        synchronized (pending) {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+
     /**
      * Ensures that the parent directory of the data file exists.
      *
@@ -67,4 +1096,46 @@ public class Storage {
             Files.createDirectories(parent);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A snapshot waiting to replace the data file, together with the next free task ID and the last
+     * journal record it includes.
+     */
+    private static class Compaction {
+        private final List<Task> tasks;
+        private final int nextId;
+        private final long seq;
+        private boolean isRotated;
+
+        private Compaction(List<Task> tasks, int nextId, long seq) {
+            this.tasks = tasks;
+            this.nextId = nextId;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Gzip stream at the fastest compression level. Every save rewrites the whole file, and on 1M tasks the
+     * fastest level still writes about an eighth of the plain text in about half the time of the default level.
+     */
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+        private FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, ZIP_BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+
+        /**
+         * Frees the compressor without closing the underlying stream, which the caller still needs.
+         */
+        private void end() {
+            def.end();
+        }
+    }
+
+    /**
+     * Writes the body of a data file.
+     */
+    private interface FileContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,87 @@
+package candy;
+
+/**
+ * Holds the settings that control how {@link Storage} persists tasks.
+ * <p>
+ * The defaults keep the original behaviour of rewriting the whole save file after every change.
+ * {@link #fromSystemProperties()} lets users switch modes with {@code -Dcandy.storage.*} flags.
+ */
+public class StorageConfig {
+    /** Whether changes are appended to a journal instead of rewriting the save file. */
+    public boolean isJournaled = false;
+
+    /** Journal size in bytes after which it is folded into a fresh snapshot. */
+    public long journalCompactionBytes = 1024 * 1024;
+
+    /**
+     * Whether a text data file is loaded as {@link SavedTask}s, which decode their line only when first used.
+     * The file is then kept in memory, and unchanged tasks are written back as they were read.
+     */
+    public boolean isLazy = false;
+
+    /** Number of threads a large text data file is split for when parsing; see {@link TaskFileLoader}. */
+    public int loadParallelism = Runtime.getRuntime().availableProcessors();
+
+    /** Layout used when writing the data file. */
+    public StorageFormat format = StorageFormat.TEXT;
+
+    /** Whether snapshots are written through gzip. Compressed files are recognised on load either way. */
+    public boolean isCompressed = false;
+
+    /** How eagerly changes are pushed to disk. */
+    public Durability durability = Durability.SYNC;
+
+    /** Longest time a change waits to be batched with others under {@link Durability#GROUP_COMMIT}. */
+    public long groupCommitDelayMillis = 10;
+
+    /** Number of waiting changes that triggers a write straight away under {@link Durability#GROUP_COMMIT}. */
+    public int groupCommitMaxBatch = 64;
+
+    /** Interval between writes under {@link Durability#PERIODIC}. */
+    public long periodicFlushMillis = 1000;
+
+    /**
+     * Builds a config from {@code candy.storage.*} system properties, using defaults for missing values.
+     *
+     * @return Storage config.
+     */
+    public static StorageConfig fromSystemProperties() {
+        StorageConfig config = new StorageConfig();
+        config.isJournaled = Boolean.getBoolean("candy.storage.journal");
+        config.journalCompactionBytes = Long.getLong("candy.storage.journal.compactBytes",
+                config.journalCompactionBytes);
+        config.isLazy = Boolean.getBoolean("candy.storage.lazy");
+        config.loadParallelism = Integer.getInteger("candy.storage.loadThreads", config.loadParallelism);
+        config.format = parseFormat(System.getProperty("candy.storage.format"), config.format);
+        config.isCompressed = Boolean.getBoolean("candy.storage.compress");
+        config.durability = parseDurability(System.getProperty("candy.storage.durability"), config.durability);
+        config.groupCommitDelayMillis = Long.getLong("candy.storage.groupCommitMillis",
+                config.groupCommitDelayMillis);
+        config.groupCommitMaxBatch = Integer.getInteger("candy.storage.groupCommitBatch",
+                config.groupCommitMaxBatch);
+        config.periodicFlushMillis = Long.getLong("candy.storage.periodicMillis", config.periodicFlushMillis);
+        return config;
+    }
+
+    private static StorageFormat parseFormat(String value, StorageFormat fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return StorageFormat.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    private static Durability parseDurability(String value, Durability fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Durability.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package candy;
+
+/**
+ * Represents the on-disk layout {@link Storage} uses when it writes the data file.
+ * <p>
+ * Loading detects the layout from the file itself, so either format can be read whatever is configured.
+ */
+public enum StorageFormat {
+    /** One pipe-separated line per task, as produced by {@link Parser#toLine(Task)}. */
+    TEXT,
+
+    /** Compact length-prefixed records written by {@link BinaryTaskCodec}. */
+    BINARY
+}
@@ -0,0 +1,127 @@
+package candy;
+
+/**
+ * Runs {@link Storage} writes on a single background thread.
+ * <p>
+ * Callers {@link #signal()} after queuing a change. The writer waits until either {@code maxBatch} changes
+ * are waiting or {@code delayMillis} has passed since the first one, then runs the flush action once for
+ * the whole burst. {@link #flush()} skips the wait and blocks until everything signaled so far is written.
+ * <p>
+ * The flush action is expected to keep what it could not write and report it itself. If it throws anyway,
+ * the thread carries on with the next burst rather than dying.
+ */
+class StorageWriter {
+    private final long delayMillis;
+    private final int maxBatch;
+    private final Runnable flushAction;
+    private final Thread thread;
+
+    private long signaled;
+    private long written;
+    private boolean isFlushRequested;
+    private boolean isClosed;
+
+    /**
+     * Creates and starts a writer thread.
+     *
+     * @param delayMillis Longest time a change waits for others to join its batch.
+     * @param maxBatch Number of waiting changes that triggers a write straight away.
+     * @param flushAction Writes out everything queued so far.
+     */
+    StorageWriter(long delayMillis, int maxBatch, Runnable flushAction) {
+        this.delayMillis = delayMillis;
+        this.maxBatch = maxBatch;
+        this.flushAction = flushAction;
+        this.thread = new Thread(this::run, "candy-storage-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Notes that one more change has been queued.
+     */
+    synchronized void signal() {
+        signaled++;
+        notifyAll();
+    }
+
+    /**
+     * Blocks until every change signaled before this call has been written.
+     */
+    synchronized void flush() {
+        long target = signaled;
+        isFlushRequested = true;
+        notifyAll();
+        try {
+            while (written < target && thread.isAlive()) {
+                wait(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns whether the thread is still running, so a stopped writer can be replaced.
+     */
+    boolean isAlive() {
+        return thread.isAlive();
+    }
+
+    /**
+     * Writes out anything still queued and stops the thread.
+     */
+    void close() {
+        flush();
+        synchronized (this) {
+            isClosed = true;
+            notifyAll();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            long target;
+            synchronized (this) {
+                try {
+                    waitForBatch();
+                } catch (InterruptedException e) {
+                    isClosed = true;
+                }
+                if (signaled == written && isClosed) {
+                    return;
+                }
+                isFlushRequested = false;
+                target = signaled;
+            }
+
+            try {
+                flushAction.run();
+            } catch (Throwable e) {
+                // The flush action keeps and reports what it could not write; later bursts need the thread.
+            }
+
+            synchronized (this) {
+                written = target;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits for the first change, then for the batch to fill up or the delay to run out.
+     */
+    private void waitForBatch() throws InterruptedException {
+        while (signaled == written && !isClosed) {
+            wait();
+        }
+        long deadline = System.nanoTime() + delayMillis * 1_000_000L;
+        while (!isFlushRequested && !isClosed && signaled - written < maxBatch) {
+            long remainingMillis = (deadline - System.nanoTime()) / 1_000_000L;
+            if (remainingMillis <= 0) {
+                return;
+            }
+            wait(remainingMillis);
+        }
+    }
+}
@@ -4,6 +4,8 @@ package candy;
  * Represents a generic task in the Candy task manager.
  * <p>
  * A task contains a description and completion status.
+ * While it is in a {@link TaskList} it also has a numeric ID that stays the same when other
+ * tasks are added or deleted. IDs are saved with the task, so they also survive a restart.
  * Subclasses such as {@link Todo}, {@link Deadline}, and {@link Event}
  * provide concrete implementations.
  */
@@ -13,41 +15,91 @@ public abstract class Task {
     protected final String description;
 
     /** Completion status of the task. */
-    protected boolean isDone;
+    protected final boolean isDone;
+
+    /** Stable ID read from the save file or assigned by the owning {@link TaskList}, or 0 if neither. */
+    private int id;
 
     /**
-     * Creates a new task with the given description.
+     * Creates a new, not completed task with the given description.
      *
      * @param description Description of the task
      */
     public Task(String description) {
+        this(description, false);
+    }
+
+    /**
+     * Creates a new task with the given description and completion status.
+     *
+     * @param description Description of the task
+     * @param isDone Completion status of the task
+     */
+    public Task(String description, boolean isDone) {
         this.description = description;
-        this.isDone = false;
+        this.isDone = isDone;
     }
 
     /**
-     * Marks this task as completed.
+     * Returns whether this task is completed.
+     *
+     * @return true if the task is done, false otherwise
      */
-    public void markDone() {
-        isDone = true;
+    public boolean isDone() {
+        return isDone;
     }
 
     /**
-     * Marks this task as not completed.
+     * Returns the stable ID of this task.
+     *
+     * @return ID, or 0 if the task has not been added to a list yet
      */
-    public void unmark() {
-        isDone = false;
+    public int getId() {
+        return id;
     }
 
     /**
-     * Returns whether this task is completed.
+     * Assigns the stable ID of this task. Called when the task is read from the save file
+     * and by {@link TaskList#add(Task)}.
      *
-     * @return true if the task is done, false otherwise
+     * @param id ID to assign
      */
-    public boolean isDone() {
-        return isDone;
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns a copy of this task with the same ID and the given completion status.
+     * {@link TaskList} swaps in such a copy instead of changing a task it holds, so anyone still reading
+     * an earlier state of the list keeps seeing the old status.
+     *
+     * @param isDone Completion status of the copy
+     * @return New task
+     */
+    public Task withDone(boolean isDone) {
+        Task copy = copy(isDone);
+        copy.id = id;
+        return copy;
     }
 
+    /**
+     * Returns this task as a {@link Todo}, {@link Deadline} or {@link Event}, which is what type checks
+     * need. A {@link SavedTask} decodes its line here; every other task returns itself.
+     *
+     * @return Task of a concrete type, with the same ID and completion status
+     */
+    Task materialize() {
+        return this;
+    }
+
+    /**
+     * Returns a new task with the same details as this one, the given completion status and no ID.
+     *
+     * @param isDone Completion status of the new task
+     * @return New task
+     */
+    protected abstract Task copy(boolean isDone);
+
     /**
      * Returns the description of this task.
      *
@@ -0,0 +1,408 @@
+package candy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads the tasks of a text save file, skipping and reporting lines that do not decode.
+ * <p>
+ * Files of at least {@link #PARALLEL_MIN_BYTES} are cut into chunks that end at line breaks. Each chunk
+ * is read from the file with its own positional read and parsed on the common fork-join pool, and the
+ * tasks are joined back in file order, so the whole file is never held in one array. Smaller files, or
+ * loads with a parallelism of one, are streamed through one {@link TaskFileReader} on the calling thread.
+ * Lazy loads always read by chunks, since their tasks keep pointing into the bytes of their chunk.
+ * Files read from a stream, such as a decompressed one, are always streamed unless the load is lazy;
+ * lazy loads of them read the whole stream into memory first.
+ * <p>
+ * A line that is not a task, or whose date is invalid, is left out and described in
+ * {@link #getProblems()} by its line number. The rest of the file still loads.
+ */
+final class TaskFileLoader {
+    /** Smallest file worth splitting across threads. */
+    static final int PARALLEL_MIN_BYTES = 1024 * 1024;
+
+    /** Smallest chunk handed to one fork-join task. */
+    private static final int MIN_CHUNK_BYTES = 256 * 1024;
+
+    /** Chunks per thread, so threads that finish early can take over work from slower ones. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** Longest part of an unreadable line quoted in its problem. */
+    private static final int MAX_QUOTED_CHARS = 60;
+
+    private final List<Task> tasks;
+    private final List<String> problems;
+    private final String header;
+    private final long lineCount;
+    private final long byteCount;
+
+    private TaskFileLoader(List<Task> tasks, List<String> problems, String header, long lineCount,
+            long byteCount) {
+        this.tasks = tasks;
+        this.problems = problems;
+        this.header = header;
+        this.lineCount = lineCount;
+        this.byteCount = byteCount;
+    }
+
+    /**
+     * Reads a text save file.
+     *
+     * @param path Save file to read.
+     * @param headerPrefix Prefix of a first line that is a header rather than a task.
+     * @param isLazy Whether to return {@link SavedTask}s instead of decoding each line.
+     * @param parallelism Number of threads to split the parsing for.
+     * @return Loaded tasks and problems.
+     * @throws IOException If reading fails, or a lazy load is asked of a file of 2 GB or more.
+     */
+    static TaskFileLoader load(Path path, String headerPrefix, boolean isLazy, int parallelism)
+            throws IOException {
+        long size = Files.size(path);
+        if (!isLazy && (parallelism <= 1 || size < PARALLEL_MIN_BYTES || size > Integer.MAX_VALUE)) {
+            try (TaskFileReader reader = new TaskFileReader(path)) {
+                return stream(reader, headerPrefix);
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Data file is too large to load lazily (" + size + " bytes).");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return loadByChunks(new Contents(channel, (int) size), headerPrefix, isLazy, parallelism);
+        }
+    }
+
+    /**
+     * Reads a text save file from a stream, a line at a time unless the load is lazy.
+     *
+     * @param in Stream holding the save file; closed once it has been read.
+     * @param headerPrefix Prefix of a first line that is a header rather than a task.
+     * @param isLazy Whether to return {@link SavedTask}s instead of decoding each line.
+     * @param parallelism Number of threads to split the parsing of a lazy load for.
+     * @return Loaded tasks and problems.
+     * @throws IOException If reading fails.
+     */
+    static TaskFileLoader load(InputStream in, String headerPrefix, boolean isLazy, int parallelism)
+            throws IOException {
+        if (isLazy) {
+            try (in) {
+                return loadByChunks(new Contents(in.readAllBytes()), headerPrefix, true, parallelism);
+            }
+        }
+        try (TaskFileReader reader = new TaskFileReader(in)) {
+            return stream(reader, headerPrefix);
+        }
+    }
+
+    private static TaskFileLoader stream(TaskFileReader reader, String headerPrefix) throws IOException {
+        Chunk chunk = new Chunk();
+        String header = null;
+        if (reader.nextLine()) {
+            if (reader.lineStartsWith(headerPrefix)) {
+                header = reader.lineText().substring(headerPrefix.length());
+            } else {
+                chunk.add(reader, false);
+            }
+        }
+        chunk.read(reader, false);
+        List<String> problems = chunk.describeProblems(header == null ? 0 : 1);
+        return new TaskFileLoader(chunk.tasks, problems, header, reader.getLineCount(), reader.getByteCount());
+    }
+
+    private static TaskFileLoader loadByChunks(Contents contents, String headerPrefix, boolean isLazy,
+            int parallelism) throws IOException {
+        int bodyStart = 0;
+        long headerLines = 0;
+        String header = null;
+        if (contents.startsWith(headerPrefix)) {
+            int lineEnd = contents.lineEnd(0);
+            byte[] headerBytes = contents.read(headerPrefix.length(), lineEnd);
+            header = new String(headerBytes, StandardCharsets.UTF_8).strip();
+            bodyStart = Math.min(lineEnd + 1, contents.length);
+            headerLines = 1;
+        }
+
+        int[] bounds = chunkBounds(contents, bodyStart, parallelism);
+        Chunk[] chunks = new Chunk[bounds.length - 1];
+        ParseChunks parseAll = new ParseChunks(contents, bounds, chunks, isLazy, 0, chunks.length);
+        try {
+            if (chunks.length == 1) {
+                parseAll.compute();
+            } else {
+                ForkJoinPool.commonPool().invoke(parseAll);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        int taskCount = 0;
+        for (Chunk chunk : chunks) {
+            taskCount += chunk.tasks.size();
+        }
+        List<Task> tasks = new ArrayList<>(taskCount);
+        List<String> problems = new ArrayList<>();
+        long lineCount = headerLines;
+        for (Chunk chunk : chunks) {
+            tasks.addAll(chunk.tasks);
+            problems.addAll(chunk.describeProblems(lineCount));
+            lineCount += chunk.lineCount;
+        }
+        return new TaskFileLoader(tasks, problems, header, lineCount, contents.length);
+    }
+
+    /**
+     * Returns the offsets where chunks start, ending with the end of the file. Every chunk but the
+     * first starts just after a line break.
+     */
+    private static int[] chunkBounds(Contents contents, int from, int parallelism) throws IOException {
+        int length = contents.length - from;
+        int chunkCount = parallelism <= 1 ? 1
+                : Math.max(1, Math.min(parallelism * CHUNKS_PER_THREAD, length / MIN_CHUNK_BYTES));
+        IntList bounds = new IntList(chunkCount + 1);
+        bounds.add(from);
+        int previous = from;
+        for (int i = 1; i < chunkCount; i++) {
+            int target = from + (int) ((long) length * i / chunkCount);
+            int start = Math.min(contents.lineEnd(Math.max(target, previous)) + 1, contents.length);
+            if (start > previous && start < contents.length) {
+                bounds.add(start);
+                previous = start;
+            }
+        }
+        bounds.add(contents.length);
+        return bounds.toArray();
+    }
+
+    List<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns one message per skipped line, in file order, such as
+     * {@code "line 7: Date must be yyyy-mm-dd (example: 2019-10-15)"}.
+     */
+    List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Returns the text after the header prefix on the first line, or null if the file has no header.
+     */
+    String getHeader() {
+        return header;
+    }
+
+    long getLineCount() {
+        return lineCount;
+    }
+
+    long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Tasks and problems from one run of lines, numbered from the start of the run.
+     */
+    private static final class Chunk {
+        private final List<Task> tasks = new ArrayList<>();
+        private final IntList problemLines = new IntList();
+        private final List<String> problemMessages = new ArrayList<>();
+        private long lineCount;
+
+        private void read(TaskFileReader reader, boolean isLazy) throws IOException {
+            while (reader.nextLine()) {
+                add(reader, isLazy);
+            }
+        }
+
+        private void add(TaskFileReader reader, boolean isLazy) {
+            lineCount++;
+            if (reader.isBlankLine()) {
+                return;
+            }
+            try {
+                Task task = isLazy ? reader.parseTaskLazily() : reader.parseTask();
+                if (task != null) {
+                    tasks.add(task);
+                } else {
+                    addProblem("not a saved task: " + quote(reader.lineText()));
+                }
+            } catch (CandyException e) {
+                addProblem(e.getMessage());
+            }
+        }
+
+        private void addProblem(String message) {
+            problemLines.add((int) lineCount);
+            problemMessages.add(message);
+        }
+
+        private List<String> describeProblems(long linesBefore) {
+            if (problemMessages.isEmpty()) {
+                return Collections.emptyList();
+            }
+            int[] lines = problemLines.toArray();
+            List<String> described = new ArrayList<>(lines.length);
+            for (int i = 0; i < lines.length; i++) {
+                described.add("line " + (linesBefore + lines[i]) + ": " + problemMessages.get(i));
+            }
+            return described;
+        }
+
+        private static String quote(String line) {
+            String text = line.strip();
+            return text.length() <= MAX_QUOTED_CHARS ? text : text.substring(0, MAX_QUOTED_CHARS) + "...";
+        }
+    }
+
+    /**
+     * The bytes of a text save file, either still in the file or already in memory.
+     * <p>
+     * A file is read with positional reads, which several threads can make at once, and only the
+     * parts asked for are read. Bytes already in memory are handed out without copying.
+     */
+    private static final class Contents {
+        /** Bytes read at a time while looking for a line break in a file. */
+        private static final int PROBE_BYTES = 8 * 1024;
+
+        /** Open save file, or null if the bytes are in memory. */
+        private final FileChannel channel;
+        /** Bytes of the save file, or null if they are read from {@link #channel}. */
+        private final byte[] bytes;
+        private final int length;
+
+        private Contents(FileChannel channel, int length) {
+            this.channel = channel;
+            this.bytes = null;
+            this.length = length;
+        }
+
+        private Contents(byte[] bytes) {
+            this.channel = null;
+            this.bytes = bytes;
+            this.length = bytes.length;
+        }
+
+        /**
+         * Returns a reader over the lines from offset {@code from} up to {@code to}. Lazy tasks from the
+         * reader keep the bytes of just these lines.
+         */
+        private TaskFileReader window(int from, int to) throws IOException {
+            return bytes != null ? new TaskFileReader(bytes, from, to) : new TaskFileReader(read(from, to));
+        }
+
+        /**
+         * Returns a copy of the bytes from offset {@code from} up to {@code to}.
+         */
+        private byte[] read(int from, int to) throws IOException {
+            if (bytes != null) {
+                return Arrays.copyOfRange(bytes, from, to);
+            }
+            byte[] part = new byte[to - from];
+            readFully(part, part.length, from);
+            return part;
+        }
+
+        private boolean startsWith(String prefix) throws IOException {
+            if (length < prefix.length()) {
+                return false;
+            }
+            byte[] start = read(0, prefix.length());
+            for (int i = 0; i < start.length; i++) {
+                if (start[i] != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the offset of the first line break at or after {@code from}, or the end of the file.
+         */
+        private int lineEnd(int from) throws IOException {
+            if (bytes != null) {
+                for (int i = from; i < length; i++) {
+                    if (bytes[i] == '\n') {
+                        return i;
+                    }
+                }
+                return length;
+            }
+            byte[] probe = new byte[PROBE_BYTES];
+            for (int start = from; start < length; start += PROBE_BYTES) {
+                int count = Math.min(PROBE_BYTES, length - start);
+                readFully(probe, count, start);
+                for (int i = 0; i < count; i++) {
+                    if (probe[i] == '\n') {
+                        return start + i;
+                    }
+                }
+            }
+            return length;
+        }
+
+        private void readFully(byte[] into, int count, long position) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(into, 0, count);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    long at = position + buffer.position();
+                    throw new EOFException("Data file ended early, at byte " + at + ".");
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a range of chunks, splitting it in half until one chunk is left.
+     */
+    private static final class ParseChunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Contents contents;
+        private final int[] bounds;
+        private final Chunk[] chunks;
+        private final boolean isLazy;
+        private final int from;
+        private final int to;
+
+        private ParseChunks(Contents contents, int[] bounds, Chunk[] chunks, boolean isLazy, int from,
+                int to) {
+            this.contents = contents;
+            this.bounds = bounds;
+            this.chunks = chunks;
+            this.isLazy = isLazy;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ParseChunks(contents, bounds, chunks, isLazy, from, mid),
+                        new ParseChunks(contents, bounds, chunks, isLazy, mid, to));
+                return;
+            }
+            Chunk chunk = new Chunk();
+            try (TaskFileReader reader = contents.window(bounds[from], bounds[to])) {
+                chunk.read(reader, isLazy);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunks[from] = chunk;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package candy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Streams a save file line by line and decodes each line straight into a {@link Task}.
+ * <p>
+ * The file is read through a {@link FileChannel}, or any other stream, into one reusable byte buffer,
+ * so only the current line is ever held in memory. Fields are found by scanning for {@code '|'} bytes
+ * rather than with a regular expression, and only the description and event times are turned into strings.
+ * The accepted format matches {@link Parser#parseLine(String)}, including the optional leading task ID.
+ * <p>
+ * A reader over a file already held in memory can also check each line without decoding it and hand
+ * out a {@link SavedTask} that decodes the line later, through {@link #parseTaskLazily()}.
+ */
+class TaskFileReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELDS = 5;
+
+    private final ReadableByteChannel channel;
+    private byte[] bytes;
+    private int limit;
+    private int scanPos;
+    private boolean isEndOfFile;
+
+    private int lineStart;
+    private int lineEnd;
+
+    /** Start of the current line after its ID field, if it has one. */
+    private int recordStart;
+    /** ID written at the start of the current line, or 0 if it has none. */
+    private int recordId;
+    private long lineCount;
+    private long byteCount;
+
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+
+    /**
+     * Opens the given file for reading.
+     *
+     * @param path Save file to read.
+     * @throws IOException If the file cannot be opened.
+     */
+    TaskFileReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.bytes = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Reads lines from a stream, such as a decompressed save file. The stream is closed with the reader.
+     *
+     * @param in Stream holding the save file.
+     */
+    TaskFileReader(InputStream in) {
+        this.channel = Channels.newChannel(in);
+        this.bytes = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Reads lines from the contents of a whole file. The lines stay where they are in {@code contents},
+     * so tasks from {@link #parseTaskLazily()} can point into it.
+     *
+     * @param contents Bytes of the save file; not copied.
+     */
+    TaskFileReader(byte[] contents) {
+        this(contents, 0, contents.length);
+    }
+
+    /**
+     * Reads the lines in part of a file held in memory.
+     *
+     * @param contents Bytes of the save file; not copied.
+     * @param from Offset where the first line starts.
+     * @param to Offset just after the last line.
+     */
+    TaskFileReader(byte[] contents, int from, int to) {
+        this.channel = null;
+        this.bytes = contents;
+        this.scanPos = from;
+        this.limit = to;
+        this.byteCount = to - from;
+        this.isEndOfFile = true;
+    }
+
+    /**
+     * Decodes one line of a save file held in memory, as {@link #parseTask()} would.
+     *
+     * @param contents Bytes of the save file.
+     * @param start Offset of the first byte of the line.
+     * @param end Offset just after the last byte of the line, without its line break.
+     * @return Task object, or null if the line format is invalid.
+     * @throws CandyException If a deadline date is invalid.
+     */
+    static Task parseRecord(byte[] contents, int start, int end) throws CandyException {
+        TaskFileReader reader = new TaskFileReader(contents);
+        reader.lineStart = start;
+        reader.lineEnd = end;
+        reader.recordStart = start;
+        return reader.parseTask();
+    }
+
+    /**
+     * Advances to the next line of the file.
+     *
+     * @return false once the end of the file has been reached.
+     * @throws IOException If reading fails.
+     */
+    boolean nextLine() throws IOException {
+        while (true) {
+            for (int i = scanPos; i < limit; i++) {
+                if (bytes[i] == '\n') {
+                    setLine(scanPos, i);
+                    scanPos = i + 1;
+                    return true;
+                }
+            }
+            if (isEndOfFile) {
+                if (scanPos < limit) {
+                    setLine(scanPos, limit);
+                    scanPos = limit;
+                    return true;
+                }
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Returns whether the current line starts with the given ASCII prefix.
+     */
+    boolean lineStartsWith(String prefix) {
+        if (lineEnd - lineStart < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[lineStart + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the current line holds nothing but whitespace.
+     */
+    boolean isBlankLine() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if ((bytes[i] & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the current line as a string.
+     */
+    String lineText() {
+        return new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the current line into a task.
+     *
+     * @return Task object, or null if the line format is invalid.
+     * @throws CandyException If a deadline date is invalid.
+     */
+    Task parseTask() throws CandyException {
+        if (!hasAllFields(scanFields())) {
+            return null;
+        }
+
+        String description = field(2);
+        boolean isDone = isDoneField();
+        Task task;
+        switch (bytes[fieldStarts[0]]) {
+        case 'D':
+            task = new Deadline(description, parseDate(fieldStarts[3], fieldEnds[3]), isDone);
+            break;
+
+        case 'E':
+            task = new Event(description, field(3), field(4), isDone);
+            break;
+
+        default:
+            task = new Todo(description, isDone);
+            break;
+        }
+
+        if (recordId > 0) {
+            task.setId(recordId);
+        }
+        return task;
+    }
+
+    /**
+     * Checks the current line like {@link #parseTask()}, including its date, but only returns a
+     * {@link SavedTask} pointing at it. The description and other strings are decoded when the task is
+     * first looked at. Only for readers over a file held in memory.
+     *
+     * @return Saved task, or null if the line format is invalid.
+     * @throws CandyException If a deadline date is invalid.
+     */
+    Task parseTaskLazily() throws CandyException {
+        if (!hasAllFields(scanFields())) {
+            return null;
+        }
+        if (bytes[fieldStarts[0]] == 'D') {
+            parseDate(fieldStarts[3], fieldEnds[3]);
+        }
+        Task task = new SavedTask(bytes, recordStart, lineEnd, isDoneField());
+        if (recordId > 0) {
+            task.setId(recordId);
+        }
+        return task;
+    }
+
+    /**
+     * Returns the number of lines read so far.
+     */
+    long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the number of bytes read from the file so far.
+     */
+    long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns whether the fields found by {@link #scanFields()} make up a known task type
+     * with every field that type needs.
+     */
+    private boolean hasAllFields(int fieldCount) {
+        if (fieldCount < 3 || fieldEnds[0] - fieldStarts[0] != 1) {
+            return false;
+        }
+        switch (bytes[fieldStarts[0]]) {
+        case 'T':
+            return true;
+        case 'D':
+            return fieldCount >= 4;
+        case 'E':
+            return fieldCount >= 5;
+        default:
+            return false;
+        }
+    }
+
+    private boolean isDoneField() {
+        return fieldEnds[1] - fieldStarts[1] == 1 && bytes[fieldStarts[1]] == '1';
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+        lineCount++;
+        scanId();
+    }
+
+    /**
+     * Reads the ID field at the start of the current line, if there is one, and sets {@link #recordStart}
+     * to the first non-blank byte after it.
+     */
+    private void scanId() {
+        recordStart = lineStart;
+        recordId = 0;
+        int i = lineStart;
+        while (i < lineEnd && (bytes[i] & 0xff) <= ' ') {
+            i++;
+        }
+        int digitsStart = i;
+        long id = 0;
+        while (i < lineEnd && bytes[i] >= '0' && bytes[i] <= '9' && i - digitsStart < 9) {
+            id = id * 10 + (bytes[i] - '0');
+            i++;
+        }
+        if (i == digitsStart) {
+            return;
+        }
+        while (i < lineEnd && (bytes[i] & 0xff) <= ' ') {
+            i++;
+        }
+        if (i == lineEnd || bytes[i] != '|') {
+            return;
+        }
+        i++;
+        while (i < lineEnd && (bytes[i] & 0xff) <= ' ') {
+            i++;
+        }
+        recordStart = i;
+        recordId = (int) id;
+    }
+
+    /**
+     * Moves the unread tail of the buffer to the front and reads more of the file after it,
+     * growing the buffer if a single line does not fit.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - scanPos;
+        if (remaining == bytes.length) {
+            byte[] larger = new byte[bytes.length * 2];
+            System.arraycopy(bytes, 0, larger, 0, remaining);
+            bytes = larger;
+        } else {
+            System.arraycopy(bytes, scanPos, bytes, 0, remaining);
+        }
+        scanPos = 0;
+        limit = remaining;
+
+        int read = channel.read(ByteBuffer.wrap(bytes, limit, bytes.length - limit));
+        if (read < 0) {
+            isEndOfFile = true;
+        } else {
+            limit += read;
+            byteCount += read;
+        }
+    }
+
+    /**
+     * Splits the current line at {@code '|'} and trims each field, keeping the bounds of the first few.
+     * Like {@link String#split(String)}, trailing empty fields are not counted.
+     *
+     * @return Number of fields.
+     */
+    private int scanFields() {
+        int count = 0;
+        int nonEmptyCount = 0;
+        int start = recordStart;
+        for (int i = recordStart; i <= lineEnd; i++) {
+            if (i < lineEnd && bytes[i] != '|') {
+                continue;
+            }
+            int from = start;
+            int to = i;
+            while (from < to && (bytes[from] & 0xff) <= ' ') {
+                from++;
+            }
+            while (to > from && (bytes[to - 1] & 0xff) <= ' ') {
+                to--;
+            }
+            if (count < MAX_FIELDS) {
+                fieldStarts[count] = from;
+                fieldEnds[count] = to;
+            }
+            count++;
+            if (to > from) {
+                nonEmptyCount = count;
+            }
+            start = i + 1;
+        }
+        return nonEmptyCount;
+    }
+
+    private String field(int index) {
+        int start = fieldStarts[index];
+        return new String(bytes, start, fieldEnds[index] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a yyyy-mm-dd date directly from the buffer, deferring to {@link Parser#parseDate(String)}
+     * for anything unusual so errors read the same as before.
+     */
+    private LocalDate parseDate(int start, int end) throws CandyException {
+        if (end - start == 10 && bytes[start + 4] == '-' && bytes[start + 7] == '-') {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    // Fall through to the regular parser for its error message.
+                }
+            }
+        }
+        return Parser.parseDate(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    private int digits(int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,377 @@
+package candy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Represents the conditions of a {@code filter} command, as parsed by {@link Parser}.
+ * <p>
+ * A filter combines conditions with {@code and}, {@code or}, {@code not} and parentheses. {@code not} binds
+ * tightest and {@code or} loosest, and conditions written next to each other are joined with {@code and}.
+ * The conditions are:
+ * <ul>
+ *   <li>{@code type:todo}, {@code type:deadline} or {@code type:event}</li>
+ *   <li>{@code done} or {@code undone}</li>
+ *   <li>{@code before:DATE}, {@code after:DATE} or {@code on:DATE}, which only deadlines can meet</li>
+ *   <li>any other word, or {@code "words in quotes"}, which the description must contain, ignoring case</li>
+ * </ul>
+ * <p>
+ * Besides checking single tasks with {@link #matches(Task)}, a filter describes the conditions every match
+ * must meet, so that {@link TaskList#filter(TaskFilter)} can start from an index instead of the whole list.
+ */
+public class TaskFilter {
+    private static final String FORMAT = "Please use format: filter <conditions> [--page <n>] [--page-size <n>]";
+
+    private final Condition condition;
+
+    /** Lower-cased texts that every match contains, for the trigram index. */
+    private final List<String> requiredTexts = new ArrayList<>();
+
+    /** Whether every match is a deadline, so the deadline orderings hold all of them. */
+    private boolean isDeadlinesOnly;
+
+    /** Completion every match has, or null if matches may have either. */
+    private Boolean requiredDone;
+
+    /** Inclusive range of epoch days every matching deadline is due in. */
+    private long minDay = Long.MIN_VALUE;
+    private long maxDay = Long.MAX_VALUE;
+
+    private TaskFilter(Condition condition) {
+        this.condition = condition;
+        collectRequirements(condition);
+    }
+
+    /**
+     * Parses the conditions of a filter command.
+     *
+     * @param text Conditions, such as {@code type:deadline undone before:2026-03-01 report}.
+     * @return Parsed filter.
+     * @throws CandyException If the conditions are empty or malformed.
+     */
+    public static TaskFilter parse(String text) throws CandyException {
+        ConditionParser parser = new ConditionParser(tokenize(text));
+        Condition condition = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            throw new CandyException("Unexpected '" + parser.tokens.get(parser.position) + "' in filter.");
+        }
+        return new TaskFilter(condition);
+    }
+
+    /**
+     * Returns whether a task meets the conditions.
+     *
+     * @param task Task to check.
+     * @return true if it matches.
+     */
+    public boolean matches(Task task) {
+        return condition.matches(task);
+    }
+
+    List<String> getRequiredTexts() {
+        return requiredTexts;
+    }
+
+    boolean isDeadlinesOnly() {
+        return isDeadlinesOnly;
+    }
+
+    Boolean getRequiredDone() {
+        return requiredDone;
+    }
+
+    long getMinDay() {
+        return minDay;
+    }
+
+    long getMaxDay() {
+        return maxDay;
+    }
+
+    /**
+     * Records what the conditions joined by top-level {@code and}s demand of every match.
+     */
+    private void collectRequirements(Condition condition) {
+        if (condition instanceof And) {
+            for (Condition part : ((And) condition).parts) {
+                collectRequirements(part);
+            }
+        } else if (condition instanceof Contains) {
+            String text = ((Contains) condition).lowerText;
+            if (text.length() >= FindIndex.MIN_QUERY_LENGTH) {
+                requiredTexts.add(text);
+            }
+        } else if (condition instanceof IsType) {
+            isDeadlinesOnly |= ((IsType) condition).type == Deadline.class;
+        } else if (condition instanceof IsDone) {
+            requiredDone = ((IsDone) condition).isDone;
+        } else if (condition instanceof DueBetween) {
+            DueBetween due = (DueBetween) condition;
+            isDeadlinesOnly = true;
+            minDay = Math.max(minDay, due.minDay);
+            maxDay = Math.min(maxDay, due.maxDay);
+        }
+    }
+
+    /**
+     * Splits conditions into words, quoted texts and parentheses.
+     */
+    private static List<String> tokenize(String text) throws CandyException {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c <= ' ') {
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '"') {
+                int close = text.indexOf('"', i + 1);
+                if (close < 0) {
+                    throw new CandyException("Missing closing quote in filter.");
+                }
+                tokens.add(text.substring(i, close + 1));
+                i = close + 1;
+            } else {
+                int start = i;
+                while (i < text.length() && text.charAt(i) > ' ' && "()\"".indexOf(text.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i));
+            }
+        }
+        if (tokens.isEmpty()) {
+            throw new CandyException(FORMAT);
+        }
+        return tokens;
+    }
+
+    /**
+     * Recursive-descent parser over the tokens, one method per precedence level.
+     */
+    private static final class ConditionParser {
+        private final List<String> tokens;
+        private int position;
+
+        private ConditionParser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        private Condition parseOr() throws CandyException {
+            List<Condition> parts = new ArrayList<>();
+            parts.add(parseAnd());
+            while (isNext("or")) {
+                position++;
+                parts.add(parseAnd());
+            }
+            return parts.size() == 1 ? parts.get(0) : new Or(parts);
+        }
+
+        private Condition parseAnd() throws CandyException {
+            List<Condition> parts = new ArrayList<>();
+            parts.add(parseNot());
+            while (position < tokens.size() && !isNext("or") && !isNext(")")) {
+                if (isNext("and")) {
+                    position++;
+                }
+                parts.add(parseNot());
+            }
+            return parts.size() == 1 ? parts.get(0) : new And(parts);
+        }
+
+        private Condition parseNot() throws CandyException {
+            if (!isNext("not")) {
+                return parseTerm();
+            }
+            position++;
+            Condition negated = parseNot();
+            if (negated instanceof IsDone) {
+                return new IsDone(!((IsDone) negated).isDone);
+            }
+            return new Not(negated);
+        }
+
+        private Condition parseTerm() throws CandyException {
+            if (position == tokens.size()) {
+                throw new CandyException("A condition is missing at the end of the filter.");
+            }
+            String token = tokens.get(position++);
+            String lower = token.toLowerCase(Locale.ROOT);
+            if (token.equals("(")) {
+                Condition inner = parseOr();
+                if (!isNext(")")) {
+                    throw new CandyException("Missing ')' in filter.");
+                }
+                position++;
+                return inner;
+            }
+            if (token.equals(")") || lower.equals("and") || lower.equals("or")) {
+                throw new CandyException("Unexpected '" + token + "' in filter.");
+            }
+            if (token.startsWith("\"")) {
+                String text = token.substring(1, token.length() - 1);
+                if (text.isEmpty()) {
+                    throw new CandyException("Quoted text in a filter cannot be empty.");
+                }
+                return new Contains(text.toLowerCase());
+            }
+            if (lower.equals("done") || lower.equals("undone")) {
+                return new IsDone(lower.equals("done"));
+            }
+            if (lower.startsWith("type:")) {
+                return new IsType(parseType(lower.substring("type:".length())));
+            }
+            if (lower.startsWith("before:")) {
+                long day = Parser.parseDate(token.substring("before:".length())).toEpochDay();
+                return new DueBetween(Long.MIN_VALUE, day - 1);
+            }
+            if (lower.startsWith("after:")) {
+                long day = Parser.parseDate(token.substring("after:".length())).toEpochDay();
+                return new DueBetween(day + 1, Long.MAX_VALUE);
+            }
+            if (lower.startsWith("on:")) {
+                long day = Parser.parseDate(token.substring("on:".length())).toEpochDay();
+                return new DueBetween(day, day);
+            }
+            return new Contains(token.toLowerCase());
+        }
+
+        private boolean isNext(String word) {
+            return position < tokens.size() && tokens.get(position).equalsIgnoreCase(word);
+        }
+
+        private static Class<? extends Task> parseType(String name) throws CandyException {
+            switch (name) {
+            case "todo":
+                return Todo.class;
+            case "deadline":
+                return Deadline.class;
+            case "event":
+                return Event.class;
+            default:
+                throw new CandyException("Unknown task type '" + name + "'. Use todo, deadline or event.");
+            }
+        }
+    }
+
+    /**
+     * One node of a parsed filter.
+     */
+    private interface Condition {
+        boolean matches(Task task);
+    }
+
+    private static final class And implements Condition {
+        private final List<Condition> parts;
+
+        private And(List<Condition> parts) {
+            this.parts = Collections.unmodifiableList(parts);
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            for (Condition part : parts) {
+                if (!part.matches(task)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Or implements Condition {
+        private final List<Condition> parts;
+
+        private Or(List<Condition> parts) {
+            this.parts = Collections.unmodifiableList(parts);
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            for (Condition part : parts) {
+                if (part.matches(task)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Not implements Condition {
+        private final Condition negated;
+
+        private Not(Condition negated) {
+            this.negated = negated;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            return !negated.matches(task);
+        }
+    }
+
+    private static final class Contains implements Condition {
+        private final String lowerText;
+
+        private Contains(String lowerText) {
+            this.lowerText = lowerText;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            return task.getDescription().toLowerCase().contains(lowerText);
+        }
+    }
+
+    private static final class IsType implements Condition {
+        private final Class<? extends Task> type;
+
+        private IsType(Class<? extends Task> type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            return type.isInstance(task.materialize());
+        }
+    }
+
+    private static final class IsDone implements Condition {
+        private final boolean isDone;
+
+        private IsDone(boolean isDone) {
+            this.isDone = isDone;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            return task.isDone() == isDone;
+        }
+    }
+
+    /**
+     * Met by deadlines due between two epoch days, inclusive.
+     */
+    private static final class DueBetween implements Condition {
+        private final long minDay;
+        private final long maxDay;
+
+        private DueBetween(long minDay, long maxDay) {
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            Task decoded = task.materialize();
+            if (!(decoded instanceof Deadline)) {
+                return false;
+            }
+            long day = ((Deadline) decoded).getByTime().toEpochDay();
+            return day >= minDay && day <= maxDay;
+        }
+    }
+}
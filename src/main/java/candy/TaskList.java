@@ -1,8 +1,13 @@
 package candy;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 
 
 /**
@@ -10,19 +15,129 @@ import java.util.Comparator;
  * <p>
  * This class manages adding, removing, searching, and updating tasks.
  * It also handles converting tasks into file storage format.
+ * <p>
+ * The list can be shared between threads. Its contents live in an immutable {@link State} that every change
+ * replaces as a whole, so reading methods such as {@link #formatForDisplay()}, {@link #find(String)} and
+ * {@link #formatSortedForDisplay()} take no locks: each works from the state that was current when it
+ * started and never sees half of a change. Changes are synchronized and copy only the O(log n) tree nodes
+ * they touch. Tasks in the list are never modified; marking one swaps in a copy from
+ * {@link Task#withDone(boolean)}.
+ * <p>
+ * Because states share everything they do not change, earlier versions of the list cost O(log n) memory
+ * per changed task to keep. Once {@link #setHistoryLimit(int)} turns history on, every change keeps the
+ * version before it, so {@link #undo()} and {@link #redo()} only swap states.
+ * <p>
+ * Tasks loaded lazily may be {@link SavedTask}s, which decode themselves when first shown or changed.
+ * Code here that checks a task's type looks at {@link Task#materialize()} instead of the task itself.
  */
 public class TaskList {
+    /** Orders deadlines by due date, then by task ID, which follows list order. */
+    private static final Comparator<Task> DEADLINE_ORDER = Comparator
+            .comparingLong((Task task) -> ((Deadline) task).getByTime().toEpochDay())
+            .thenComparingInt(Task::getId);
+
+    /**
+     * Rough cost of looking up one find candidate by ID, in tasks walked. Searches with more candidates
+     * than the list size divided by this walk the list instead.
+     */
+    private static final int CANDIDATE_LOOKUP_COST = 16;
+
+    private volatile State state = State.EMPTY;
 
-    /** Internal list storing all tasks. */
-    private final ArrayList<Task> tasks = new ArrayList<>();
+    /** Next ID to hand out; only read and written while holding this list's monitor. */
+    private int nextId = 1;
+
+    /** Most earlier versions kept for {@link #undo()}; 0 keeps none. Guarded like {@link #nextId}. */
+    private int historyLimit;
+
+    /** Versions before recent changes, newest first. */
+    private final ArrayDeque<State> undoStates = new ArrayDeque<>();
+
+    /** Versions taken back by {@link #undo()}, newest first. */
+    private final ArrayDeque<State> redoStates = new ArrayDeque<>();
+
+    /**
+     * Creates an empty task list.
+     */
+    public TaskList() {
+    }
+
+    /**
+     * Creates a list holding the tasks of a state, with IDs continuing after its last task.
+     */
+    private TaskList(State state) {
+        this.state = state;
+        int size = state.tasks.size();
+        this.nextId = size == 0 ? 1 : state.tasks.get(size - 1).getId() + 1;
+    }
 
     /**
      * Adds a task to the list.
+     * A task loaded with an ID keeps it as long as it is higher than every ID handed out so far;
+     * any other task gets the next free one, so a hand-edited save file cannot break the ID order.
      *
      * @param t Task to be added
      */
-    public void add(Task t) {
-        tasks.add(t);
+    public synchronized void add(Task t) {
+        assignId(t);
+        State current = state;
+        if (current.findIndex != null) {
+            current.findIndex.add(t.getId(), t.getDescription().toLowerCase());
+        }
+        publish(update(current, current.tasks.append(t), null, t));
+    }
+
+    /**
+     * Adds several tasks as one change. Building their part of the list at once takes O(n) for n tasks,
+     * where adding them one by one would copy a tree path per task.
+     * IDs are kept or handed out as in {@link #add(Task)}.
+     *
+     * @param batch Tasks to be added, in order
+     */
+    public synchronized void addAll(List<Task> batch) {
+        State current = state;
+        for (Task t : batch) {
+            assignId(t);
+            if (current.findIndex != null) {
+                current.findIndex.add(t.getId(), t.getDescription().toLowerCase());
+            }
+        }
+        State next = new State(current.tasks.appendAll(batch), current.pendingDeadlines, current.doneDeadlines,
+                current.findIndex);
+        for (Task t : batch) {
+            next = update(next, next.tasks, null, t);
+        }
+        publish(next);
+    }
+
+    /**
+     * Keeps the ID of a task being added if it comes after every ID handed out so far, and otherwise
+     * gives it the next free one.
+     */
+    private void assignId(Task t) {
+        if (t.getId() < nextId) {
+            t.setId(nextId);
+        }
+        nextId = t.getId() + 1;
+    }
+
+    /**
+     * Returns the ID the next task added without one will get. Every task in the list has a lower ID.
+     *
+     * @return Next free ID
+     */
+    public synchronized int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Makes sure IDs below the given one are never handed out, for example because tasks that had them
+     * were deleted before the list was saved.
+     *
+     * @param id Lowest ID that may still be handed out
+     */
+    public synchronized void reserveIdsBelow(int id) {
+        nextId = Math.max(nextId, id);
     }
 
     /**
@@ -33,10 +148,45 @@ public class TaskList {
      * @throws CandyException If index is invalid
      */
     public Task get(int idx) throws CandyException {
-        checkIndex(idx);
+        TaskTree tasks = state.tasks;
+        checkIndex(idx, tasks);
         return tasks.get(idx);
     }
 
+    /**
+     * Returns the task with the given ID.
+     *
+     * @param id Task ID
+     * @return Task with that ID
+     * @throws CandyException If no task in the list has that ID
+     */
+    public Task getById(int id) throws CandyException {
+        TaskTree tasks = state.tasks;
+        return tasks.get(indexOf(tasks, id));
+    }
+
+    /**
+     * Returns the current zero-based index of the task with the given ID.
+     *
+     * @param id Task ID
+     * @return Index of the task
+     * @throws CandyException If no task in the list has that ID
+     */
+    public int indexOf(int id) throws CandyException {
+        return indexOf(state.tasks, id);
+    }
+
+    /**
+     * Finds a task by ID in O(log n), relying on IDs ascending in list order.
+     */
+    private static int indexOf(TaskTree tasks, int id) throws CandyException {
+        int index = tasks.indexOf(task -> Integer.compare(id, task.getId()));
+        if (index < 0) {
+            throw new CandyException("Task #" + id + " does not exist.");
+        }
+        return index;
+    }
+
     /**
      * Removes and returns the task at the specified index.
      *
@@ -44,9 +194,96 @@ public class TaskList {
      * @return Removed task
      * @throws CandyException If index is invalid
      */
-    public Task remove(int idx) throws CandyException {
-        checkIndex(idx);
-        return tasks.remove(idx);
+    public synchronized Task remove(int idx) throws CandyException {
+        State current = state;
+        checkIndex(idx, current.tasks);
+        Task removed = current.tasks.get(idx);
+        publish(removeAt(current, idx));
+        return removed;
+    }
+
+    /**
+     * Removes and returns the task with the given ID.
+     *
+     * @param id Task ID
+     * @return Removed task
+     * @throws CandyException If no task in the list has that ID
+     */
+    public synchronized Task removeById(int id) throws CandyException {
+        State current = state;
+        int index = indexOf(current.tasks, id);
+        Task removed = current.tasks.get(index);
+        publish(removeAt(current, index));
+        return removed;
+    }
+
+    /**
+     * Removes the tasks at the given indexes as one change, so readers see either all of them or none.
+     * The indexes refer to positions before any of the tasks is removed.
+     *
+     * @param indexes Distinct zero-based indexes in ascending order
+     * @return Removed tasks, in list order
+     * @throws CandyException If any index is invalid; nothing is removed in that case
+     */
+    public synchronized List<Task> removeAll(int[] indexes) throws CandyException {
+        State next = state;
+        checkIndexes(indexes, next.tasks);
+        List<Task> removed = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            removed.add(next.tasks.get(index));
+        }
+        // Back to front, so earlier indexes still point at the same tasks.
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            next = removeAt(next, indexes[i]);
+        }
+        publish(next);
+        return removed;
+    }
+
+    /**
+     * Marks the tasks at the given indexes as completed, as one change.
+     *
+     * @param indexes Distinct zero-based indexes in ascending order
+     * @throws CandyException If any index is invalid; nothing is changed in that case
+     */
+    public synchronized void markAll(int[] indexes) throws CandyException {
+        setDoneAll(indexes, true);
+    }
+
+    /**
+     * Marks the tasks at the given indexes as not completed, as one change.
+     *
+     * @param indexes Distinct zero-based indexes in ascending order
+     * @throws CandyException If any index is invalid; nothing is changed in that case
+     */
+    public synchronized void unmarkAll(int[] indexes) throws CandyException {
+        setDoneAll(indexes, false);
+    }
+
+    private void setDoneAll(int[] indexes, boolean isDone) throws CandyException {
+        State next = state;
+        checkIndexes(indexes, next.tasks);
+        for (int index : indexes) {
+            next = setDone(next, index, isDone);
+        }
+        publish(next);
+    }
+
+    /**
+     * Returns the indexes of all completed tasks.
+     *
+     * @return Zero-based indexes in ascending order
+     */
+    public int[] doneIndexes() {
+        IntList indexes = new IntList();
+        int position = 0;
+        for (Task task : state.tasks) {
+            if (task.isDone()) {
+                indexes.add(position);
+            }
+            position++;
+        }
+        return indexes.toArray();
     }
 
     /**
@@ -55,7 +292,7 @@ public class TaskList {
      * @return Number of tasks
      */
     public int size() {
-        return tasks.size();
+        return state.tasks.size();
     }
 
     /**
@@ -64,9 +301,10 @@ public class TaskList {
      * @param index Index of the task
      * @throws CandyException If index is invalid
      */
-    public void mark(int index) throws CandyException {
-        checkIndex(index);
-        tasks.get(index).markDone();
+    public synchronized void mark(int index) throws CandyException {
+        State current = state;
+        checkIndex(index, current.tasks);
+        publish(setDone(current, index, true));
     }
 
     /**
@@ -75,9 +313,120 @@ public class TaskList {
      * @param index Index of the task
      * @throws CandyException If index is invalid
      */
-    public void unmark(int index) throws CandyException {
-        checkIndex(index);
-        tasks.get(index).unmark();
+    public synchronized void unmark(int index) throws CandyException {
+        State current = state;
+        checkIndex(index, current.tasks);
+        publish(setDone(current, index, false));
+    }
+
+    private static State setDone(State current, int index, boolean isDone) {
+        Task task = current.tasks.get(index);
+        if (task.isDone() == isDone) {
+            return current;
+        }
+        Task updated = task.withDone(isDone);
+        return update(current, current.tasks.set(index, updated), task, updated);
+    }
+
+    private static State removeAt(State current, int index) {
+        Task removed = current.tasks.get(index);
+        if (current.findIndex != null) {
+            current.findIndex.remove();
+        }
+        return update(current, current.tasks.removeAt(index), removed, null);
+    }
+
+    /**
+     * Returns a state with the given tasks, taking {@code removed} out of the deadline orderings and putting
+     * {@code added} in, if the orderings have been built. Either task may be null.
+     */
+    private static State update(State current, TaskTree tasks, Task removed, Task added) {
+        TaskTree pending = current.pendingDeadlines;
+        TaskTree done = current.doneDeadlines;
+        if (pending != null) {
+            // The orderings hold decoded tasks, since they compare deadline dates.
+            Task removedTask = removed == null ? null : removed.materialize();
+            Task addedTask = added == null ? null : added.materialize();
+            if (removedTask instanceof Deadline) {
+                if (removedTask.isDone()) {
+                    done = done.remove(removedTask, DEADLINE_ORDER);
+                } else {
+                    pending = pending.remove(removedTask, DEADLINE_ORDER);
+                }
+            }
+            if (addedTask instanceof Deadline) {
+                if (addedTask.isDone()) {
+                    done = done.insert(addedTask, DEADLINE_ORDER);
+                } else {
+                    pending = pending.insert(addedTask, DEADLINE_ORDER);
+                }
+            }
+        }
+        return new State(tasks, pending, done, current.findIndex);
+    }
+
+    /**
+     * Makes a state visible to readers, first replacing its find index if it mostly holds removed tasks.
+     * If history is on and the tasks changed, the replaced state is kept for {@link #undo()} and anything
+     * undone before can no longer be redone.
+     */
+    private void publish(State next) {
+        if (next.findIndex != null && next.findIndex.isMostlyRemoved(next.tasks.size())) {
+            next = new State(next.tasks, next.pendingDeadlines, next.doneDeadlines, buildFindIndex(next.tasks));
+        }
+        if (historyLimit > 0 && next.tasks != state.tasks) {
+            undoStates.addFirst(state);
+            if (undoStates.size() > historyLimit) {
+                undoStates.removeLast();
+            }
+            redoStates.clear();
+        }
+        state = next;
+    }
+
+    /**
+     * Sets how many earlier versions are kept for {@link #undo()}, dropping the oldest ones beyond it.
+     * History is off until this is called, so changes made while loading cannot be undone.
+     *
+     * @param limit Most versions to keep; 0 turns history off and forgets it.
+     */
+    public synchronized void setHistoryLimit(int limit) {
+        historyLimit = Math.max(0, limit);
+        while (undoStates.size() > historyLimit) {
+            undoStates.removeLast();
+        }
+        while (redoStates.size() > historyLimit) {
+            redoStates.removeLast();
+        }
+    }
+
+    /**
+     * Puts the list back the way it was before the latest change that is not yet undone.
+     * Task IDs are not handed out again, so tasks added later still get higher IDs.
+     *
+     * @throws CandyException If there is no earlier version to go back to.
+     */
+    public synchronized void undo() throws CandyException {
+        State previous = undoStates.pollFirst();
+        if (previous == null) {
+            throw new CandyException("There is nothing to undo.");
+        }
+        redoStates.addFirst(state);
+        state = previous;
+    }
+
+    /**
+     * Makes again the latest change taken back by {@link #undo()}.
+     *
+     * @throws CandyException If nothing has been undone since the last change.
+     */
+    public synchronized void redo() throws CandyException {
+        State next = redoStates.pollFirst();
+        if (next == null) {
+            throw new CandyException("There is nothing to redo.");
+        }
+        undoStates.addFirst(state);
+        state = next;
     }
 
     /**
@@ -86,41 +435,250 @@ public class TaskList {
      * @return List of formatted task lines
      */
     public List<String> toLines() {
-        List<String> lines = new ArrayList<>();
+        TaskTree tasks = state.tasks;
+        List<String> lines = new ArrayList<>(tasks.size());
         for (Task task : tasks) {
             lines.add(Parser.toLine(task));
         }
         return lines;
     }
 
+    /**
+     * Returns the current task order in O(1). The returned list never changes, so it can be written out
+     * while this list keeps changing.
+     *
+     * @return Read-only tasks in list order
+     */
+    public List<Task> snapshot() {
+        return state.tasks.asList();
+    }
+
+    /**
+     * Returns a separate list holding the tasks this one holds now, in O(1).
+     * Later changes to either list do not show in the other, so the copy reads the same every time.
+     *
+     * @return Copy of this list
+     */
+    public TaskList copy() {
+        State current = state;
+        return new TaskList(new State(current.tasks, current.pendingDeadlines, current.doneDeadlines, null));
+    }
+
     /**
      * Checks whether the given index is valid.
      *
      * @param index Index to be checked
      * @throws CandyException If index is out of range
      */
-    private void checkIndex(int index) throws CandyException {
+    private static void checkIndex(int index, TaskTree tasks) throws CandyException {
         if (index < 0 || index >= tasks.size()) {
             throw new CandyException("Task number does not exist.");
         }
     }
 
     /**
-     * Finds tasks whose descriptions contain the given keyword.
+     * Checks every index before any change is made, so bulk changes are all-or-nothing.
+     */
+    private static void checkIndexes(int[] indexes, TaskTree tasks) throws CandyException {
+        for (int index : indexes) {
+            checkIndex(index, tasks);
+        }
+    }
+
+    /**
+     * Finds tasks whose descriptions contain the given keyword, ignoring case.
+     * <p>
+     * Keywords of three or more characters are resolved through the trigram index, so only tasks
+     * sharing every trigram of the keyword are checked. Shorter keywords scan the whole list.
      *
      * @param keyword Search keyword
-     * @return A TaskList containing matching tasks
+     * @return A TaskList containing matching tasks, in list order
      */
     public TaskList find(String keyword) {
-        TaskList result = new TaskList();
+        State current = state;
         String keywordLowerCase = keyword.toLowerCase();
+        List<Task> matches = new ArrayList<>();
 
-        for (Task task : tasks) {
-            if (task.getDescription().toLowerCase().contains(keywordLowerCase)) {
-                result.add(task);
+        if (keywordLowerCase.length() < FindIndex.MIN_QUERY_LENGTH) {
+            for (Task task : current.tasks) {
+                addIfMatches(matches, task, keywordLowerCase);
+            }
+            return new TaskList(new State(TaskTree.of(matches), null, null, null));
+        }
+
+        if (current.findIndex == null) {
+            current = withFindIndex();
+        }
+        // The index may also hold removed tasks and tasks added since the state was read; both are skipped.
+        int[] candidates = current.findIndex.candidates(keywordLowerCase);
+        TaskTree tasks = current.tasks;
+        if ((long) candidates.length * CANDIDATE_LOOKUP_COST < tasks.size()) {
+            for (int id : candidates) {
+                int index = tasks.indexOf(task -> Integer.compare(id, task.getId()));
+                if (index >= 0) {
+                    addIfMatches(matches, tasks.get(index), keywordLowerCase);
+                }
+            }
+        } else {
+            int next = 0;
+            for (Iterator<Task> it = tasks.iterator(); it.hasNext() && next < candidates.length; ) {
+                Task task = it.next();
+                while (next < candidates.length && candidates[next] < task.getId()) {
+                    next++;
+                }
+                if (next < candidates.length && candidates[next] == task.getId()) {
+                    addIfMatches(matches, task, keywordLowerCase);
+                }
             }
         }
-        return result;
+        return new TaskList(new State(TaskTree.of(matches), null, null, null));
+    }
+
+    /**
+     * Ranks tasks by how similar their descriptions are to a query, ignoring case, word order and small
+     * typos. Similarity compares the sets of three-character runs in both texts; see
+     * {@link FindIndex}.
+     *
+     * @param query Words to look for, at least three characters long.
+     * @param limit Most results to return.
+     * @return Up to {@code limit} results, most similar first, earlier tasks first among equals.
+     */
+    public List<SearchResult> search(String query, int limit) {
+        State current = state;
+        if (current.findIndex == null) {
+            current = withFindIndex();
+        }
+        // The index may also hold removed tasks and tasks added since the state was read; both are skipped.
+        TaskTree tasks = current.tasks;
+        List<FindIndex.Match> matches = current.findIndex.search(query.toLowerCase(), limit,
+                id -> tasks.indexOf(task -> Integer.compare(id, task.getId())) >= 0);
+        List<SearchResult> results = new ArrayList<>(matches.size());
+        for (FindIndex.Match match : matches) {
+            Task task = tasks.get(tasks.indexOf(t -> Integer.compare(match.key, t.getId())));
+            results.add(new SearchResult(task, match.score));
+        }
+        return results;
+    }
+
+    /**
+     * Finds the tasks that meet a filter's conditions.
+     * <p>
+     * A small planner first picks where to look. If only deadlines can match, the matches lie in one due-date
+     * range of the deadline orderings, taking only the pending or done ordering when the filter requires
+     * it. If every match must contain a text of three or more characters, the matches are among that
+     * text's trigram candidates. The planner counts the tasks each of these would visit, weighing
+     * candidates by {@link #CANDIDATE_LOOKUP_COST} since each is looked up by ID, and uses the cheapest,
+     * or scans the whole list if that costs less. An index is built on its first use, as in
+     * {@link #find(String)} and {@link #formatSortedForDisplay()}. Every visited task is checked against
+     * the whole filter, so the plan only changes how fast the answer comes.
+     *
+     * @param filter Conditions to meet.
+     * @return A TaskList containing matching tasks, in list order
+     */
+    public TaskList filter(TaskFilter filter) {
+        State current = state;
+        if (filter.isDeadlinesOnly() && current.pendingDeadlines == null) {
+            current = withDeadlineIndex();
+        }
+        if (!filter.getRequiredTexts().isEmpty() && current.findIndex == null) {
+            current = withFindIndex();
+        }
+        TaskTree tasks = current.tasks;
+        long bestCost = tasks.size();
+
+        // Due-date ranges, as start and end positions in each ordering the filter allows.
+        TaskTree[] orderings = null;
+        int[] ranges = null;
+        if (filter.isDeadlinesOnly()) {
+            Boolean done = filter.getRequiredDone();
+            TaskTree[] allowed = done == null ? new TaskTree[] {current.pendingDeadlines, current.doneDeadlines}
+                    : new TaskTree[] {done ? current.doneDeadlines : current.pendingDeadlines};
+            int[] bounds = new int[2 * allowed.length];
+            long cost = 0;
+            for (int i = 0; i < allowed.length; i++) {
+                bounds[2 * i] = dueRank(allowed[i], filter.getMinDay());
+                bounds[2 * i + 1] = filter.getMaxDay() == Long.MAX_VALUE ? allowed[i].size()
+                        : dueRank(allowed[i], filter.getMaxDay() + 1);
+                cost += Math.max(0, bounds[2 * i + 1] - bounds[2 * i]);
+            }
+            if (cost < bestCost) {
+                bestCost = cost;
+                orderings = allowed;
+                ranges = bounds;
+            }
+        }
+        String text = null;
+        for (String required : filter.getRequiredTexts()) {
+            long cost = (long) current.findIndex.estimateCandidates(required) * CANDIDATE_LOOKUP_COST;
+            if (cost < bestCost) {
+                bestCost = cost;
+                text = required;
+                orderings = null;
+            }
+        }
+
+        List<Task> matches = new ArrayList<>();
+        if (orderings != null) {
+            for (int i = 0; i < orderings.length; i++) {
+                Iterator<Task> it = orderings[i].iterator(ranges[2 * i]);
+                for (int position = ranges[2 * i]; position < ranges[2 * i + 1]; position++) {
+                    Task task = it.next();
+                    if (filter.matches(task)) {
+                        matches.add(task);
+                    }
+                }
+            }
+            matches.sort(Comparator.comparingInt(Task::getId));
+        } else if (text != null) {
+            // The index may also hold removed tasks and tasks added since the state was read; both are skipped.
+            for (int id : current.findIndex.candidates(text)) {
+                int index = tasks.indexOf(task -> Integer.compare(id, task.getId()));
+                if (index >= 0 && filter.matches(tasks.get(index))) {
+                    matches.add(tasks.get(index));
+                }
+            }
+        } else {
+            for (Task task : tasks) {
+                if (filter.matches(task)) {
+                    matches.add(task);
+                }
+            }
+        }
+        return new TaskList(new State(TaskTree.of(matches), null, null, null));
+    }
+
+    /**
+     * Returns how many deadlines in a deadline ordering are due before an epoch day.
+     */
+    private static int dueRank(TaskTree deadlines, long day) {
+        return deadlines.rank(task -> ((Deadline) task).getByTime().toEpochDay() < day ? 1 : -1);
+    }
+
+    private static void addIfMatches(List<Task> matches, Task task, String keywordLowerCase) {
+        if (task.getDescription().toLowerCase().contains(keywordLowerCase)) {
+            matches.add(task);
+        }
+    }
+
+    /**
+     * Builds the find index on the first search and returns the state that has it.
+     */
+    private synchronized State withFindIndex() {
+        State current = state;
+        if (current.findIndex == null) {
+            current = new State(current.tasks, current.pendingDeadlines, current.doneDeadlines,
+                    buildFindIndex(current.tasks));
+            state = current;
+        }
+        return current;
+    }
+
+    private static FindIndex buildFindIndex(TaskTree tasks) {
+        FindIndex index = new FindIndex();
+        for (Task task : tasks) {
+            index.add(task.getId(), task.getDescription().toLowerCase());
+        }
+        return index;
     }
 
     /**
@@ -129,20 +687,46 @@ public class TaskList {
      * @return formatted task list string
      */
     public String formatForDisplay() {
-        if (tasks.isEmpty()) {
+        TaskTree tasks = state.tasks;
+        if (tasks.size() == 0) {
             return "Your task list is empty.";
         }
 
         StringBuilder sb = new StringBuilder();
+        try {
+            writeDisplay(tasks, sb, 0, tasks.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the tasks in positions {@code from} (inclusive) to {@code to} (exclusive) as numbered
+     * lines, the same way {@link #formatForDisplay()} shows them, without building the text in memory.
+     * Nothing is locked while writing, so a slow destination does not hold up changes.
+     *
+     * @param out Destination of the lines.
+     * @param from First position to write.
+     * @param to Position after the last one to write; clamped to the list size.
+     * @throws IOException If the destination fails.
+     */
+    public void writeDisplay(Appendable out, int from, int to) throws IOException {
+        writeDisplay(state.tasks, out, from, to);
+    }
 
-        for (int i = 0; i < tasks.size(); i++) {
-            sb.append(i + 1)
+    private static void writeDisplay(TaskTree tasks, Appendable out, int from, int to) throws IOException {
+        int end = Math.min(to, tasks.size());
+        if (from >= end) {
+            return;
+        }
+        Iterator<Task> it = tasks.iterator(from);
+        for (int number = from + 1; number <= end; number++) {
+            out.append(String.valueOf(number))
                     .append(". ")
-                    .append(tasks.get(i).toString())
-                    .append("\n");
+                    .append(it.next().toString())
+                    .append('\n');
         }
-
-        return sb.toString();
     }
 
     /**
@@ -154,80 +738,108 @@ public class TaskList {
      * - Todos
      * - Events
      *
+     * Deadlines come straight from the maintained date ordering, so no sorting happens here.
      * This method does NOT modify the original task order.
      *
      * @return A formatted string representation of the categorized task list.
      */
     public String formatSortedForDisplay() {
-        if (tasks.isEmpty()) {
+        State current = state;
+        if (current.tasks.size() == 0) {
             return "Your task list is empty.";
         }
-
-        ArrayList<Deadline> urgent = new ArrayList<>();
-        ArrayList<Deadline> completedDeadlines = new ArrayList<>();
-        ArrayList<Todo> todos = new ArrayList<>();
-        ArrayList<Event> events = new ArrayList<>();
-
-        // Separate tasks into groups
-        for (Task task : tasks) {
-            if (task instanceof Deadline) {
-                Deadline deadline = (Deadline) task;
-                if (!deadline.isDone()) {
-                    urgent.add(deadline);
-                } else {
-                    completedDeadlines.add(deadline);
-                }
-            } else if (task instanceof Todo) {
-                todos.add((Todo) task);
-            } else if (task instanceof Event) {
-                events.add((Event) task);
-            }
+        if (current.pendingDeadlines == null) {
+            current = withDeadlineIndex();
         }
 
-        // Sort deadlines by date
-        urgent.sort(Comparator.comparing(Deadline::getByTime));
-        completedDeadlines.sort(Comparator.comparing(Deadline::getByTime));
-
         StringBuilder sb = new StringBuilder();
 
         sb.append(" ~~Incomplete Urgent Tasks~~ \n");
-        if (urgent.isEmpty()) {
-            sb.append("None\n");
-        } else {
-            for (Deadline deadline : urgent) {
-                sb.append("- ").append(deadline).append("\n");
-            }
-        }
+        appendSection(sb, current.pendingDeadlines.asList());
 
         sb.append("\n ~~Completed Deadlines~~ \n");
-        if (completedDeadlines.isEmpty()) {
-            sb.append("None\n");
-        } else {
-            for (Deadline deadline : completedDeadlines) {
-                sb.append("- ").append(deadline).append("\n");
+        appendSection(sb, current.doneDeadlines.asList());
+
+        ArrayList<Task> todos = new ArrayList<>();
+        ArrayList<Task> events = new ArrayList<>();
+        for (Task listed : current.tasks) {
+            Task task = listed.materialize();
+            if (task instanceof Todo) {
+                todos.add(task);
+            } else if (task instanceof Event) {
+                events.add(task);
             }
         }
 
         sb.append("\n ~~Todos~~ \n");
-        if (todos.isEmpty()) {
-            sb.append("None\n");
-        } else {
-            for (Todo todo : todos) {
-                sb.append("- ").append(todo).append("\n");
-            }
-        }
+        appendSection(sb, todos);
 
         sb.append("\n ~~Events~~ \n");
-        if (events.isEmpty()) {
-            sb.append("None\n");
-        } else {
-            for (Event event : events) {
-                sb.append("- ").append(event).append("\n");
+        appendSection(sb, events);
+
+        return sb.toString();
+    }
+
+    /**
+     * Builds the deadline orderings on the first sort and returns the state that has them.
+     */
+    private synchronized State withDeadlineIndex() {
+        State current = state;
+        if (current.pendingDeadlines != null) {
+            return current;
+        }
+        List<Task> pending = new ArrayList<>();
+        List<Task> done = new ArrayList<>();
+        for (Task listed : current.tasks) {
+            Task task = listed.materialize();
+            if (task instanceof Deadline) {
+                (task.isDone() ? done : pending).add(task);
             }
         }
+        pending.sort(DEADLINE_ORDER);
+        done.sort(DEADLINE_ORDER);
+        current = new State(current.tasks, TaskTree.of(pending), TaskTree.of(done), current.findIndex);
+        state = current;
+        return current;
+    }
 
-        return sb.toString();
+    private static void appendSection(StringBuilder sb, Collection<? extends Task> section) {
+        if (section.isEmpty()) {
+            sb.append("None\n");
+            return;
+        }
+        for (Task task : section) {
+            sb.append("- ").append(task).append("\n");
+        }
     }
 
+    /**
+     * Everything a reader needs, replaced as a whole by every change.
+     */
+    private static final class State {
+        private static final State EMPTY = new State(TaskTree.EMPTY, null, null, null);
+
+        /** Tasks in list order. Their IDs ascend, so the tree is ordered by ID as well. */
+        private final TaskTree tasks;
 
-}
\ No newline at end of file
+        /**
+         * Deadlines in {@link #DEADLINE_ORDER}, split by completion, for {@link #formatSortedForDisplay()}.
+         * Built on the first sort and maintained afterwards; null until then.
+         */
+        private final TaskTree pendingDeadlines;
+        private final TaskTree doneDeadlines;
+
+        /**
+         * Trigram index for {@link #find(String)} and {@link #search(String, int)}, built on the first
+         * search and then shared with later states, which only add to it. Null until the first search.
+         */
+        private final FindIndex findIndex;
+
+        private State(TaskTree tasks, TaskTree pendingDeadlines, TaskTree doneDeadlines, FindIndex findIndex) {
+            this.tasks = tasks;
+            this.pendingDeadlines = pendingDeadlines;
+            this.doneDeadlines = doneDeadlines;
+            this.findIndex = findIndex;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package candy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Represents the tasks a bulk mark/unmark/delete applies to, as parsed by {@link Parser}.
+ * <p>
+ * A selection is either a set of 1-based task numbers and inclusive ranges (e.g. {@code 1,4,9-20}),
+ * or every completed task ({@code done}).
+ */
+public class TaskSelection {
+    private final List<int[]> ranges = new ArrayList<>();
+    private boolean isDoneOnly;
+
+    /**
+     * Creates a selection of every completed task.
+     *
+     * @return Selection.
+     */
+    public static TaskSelection done() {
+        TaskSelection selection = new TaskSelection();
+        selection.isDoneOnly = true;
+        return selection;
+    }
+
+    /**
+     * Adds the task numbers {@code from} to {@code to}, inclusive and 1-based.
+     *
+     * @param from First task number.
+     * @param to Last task number.
+     */
+    public void addRange(int from, int to) {
+        ranges.add(new int[] {from, to});
+    }
+
+    /**
+     * Resolves this selection against a task list.
+     * Every number is checked before anything is returned, so a command either applies to all
+     * selected tasks or fails without changing anything.
+     *
+     * @param tasks Task list the numbers refer to.
+     * @return Distinct zero-based indexes in ascending order.
+     * @throws CandyException If a selected task number does not exist.
+     */
+    public int[] resolve(TaskList tasks) throws CandyException {
+        if (isDoneOnly) {
+            return tasks.doneIndexes();
+        }
+
+        List<int[]> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingInt(range -> range[0]));
+        int size = tasks.size();
+        IntList indexes = new IntList();
+        int next = 1;
+        for (int[] range : sorted) {
+            if (range[1] > size) {
+                throw new CandyException("Task number " + range[1] + " does not exist.");
+            }
+            for (int number = Math.max(range[0], next); number <= range[1]; number++) {
+                indexes.add(number - 1);
+            }
+            next = Math.max(next, range[1] + 1);
+        }
+        return indexes.toArray();
+    }
+}
@@ -0,0 +1,381 @@
+package candy;
+
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * Immutable sequence of tasks, stored as an AVL tree whose nodes know the size of their subtree.
+ * <p>
+ * Every change returns a new tree that shares all untouched nodes with the old one, so it copies only
+ * the O(log n) nodes on one path from the root and the old tree stays valid for anyone still reading it.
+ * Positions are zero-based. The same tree can also be kept sorted by a comparator through
+ * {@link #insert(Task, Comparator)} and {@link #remove(Task, Comparator)}.
+ */
+final class TaskTree implements Iterable<Task> {
+    /** Tree without tasks. */
+    static final TaskTree EMPTY = new TaskTree(null);
+
+    /** AVL trees holding fewer than 2^31 nodes are never taller than this. */
+    private static final int MAX_HEIGHT = 46;
+
+    private final Node root;
+
+    private TaskTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Builds a balanced tree holding the given tasks in order, in O(n).
+     *
+     * @param tasks Tasks in the order they should appear.
+     * @return New tree.
+     */
+    static TaskTree of(List<Task> tasks) {
+        return new TaskTree(build(tasks, 0, tasks.size()));
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the task at a position.
+     *
+     * @param index Position, which must be in range.
+     */
+    Task get(int index) {
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.task;
+            }
+        }
+    }
+
+    TaskTree append(Task task) {
+        return new TaskTree(insertAt(root, size(root), task));
+    }
+
+    /**
+     * Returns a tree with the given tasks added at the end, in O(m + log n) for m tasks.
+     */
+    TaskTree appendAll(List<Task> tasks) {
+        Node added = build(tasks, 0, tasks.size());
+        if (root == null || added == null) {
+            return added == null ? this : new TaskTree(added);
+        }
+        Task last = get(size() - 1);
+        return new TaskTree(join(removeAt(root, size() - 1), last, added));
+    }
+
+    /**
+     * Returns a tree with the task at a position replaced.
+     *
+     * @param index Position, which must be in range.
+     */
+    TaskTree set(int index, Task task) {
+        return new TaskTree(set(root, index, task));
+    }
+
+    /**
+     * Returns a tree without the task at a position.
+     *
+     * @param index Position, which must be in range.
+     */
+    TaskTree removeAt(int index) {
+        return new TaskTree(removeAt(root, index));
+    }
+
+    /**
+     * Returns the position of a task in a tree ordered consistently with {@code direction}.
+     *
+     * @param direction Returns a negative number if the sought task comes before the given one,
+     *     a positive number if it comes after, and 0 if it is the one.
+     * @return Position of the task, or -1 if there is none.
+     */
+    int indexOf(ToIntFunction<Task> direction) {
+        Node node = root;
+        int offset = 0;
+        while (node != null) {
+            int cmp = direction.applyAsInt(node.task);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                offset += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return offset + size(node.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns how many tasks come before a point in a tree ordered consistently with {@code isBefore}.
+     *
+     * @param isBefore Returns a positive number for tasks before the point, and anything else for the rest.
+     * @return Position the point would have, from 0 to the size of the tree.
+     */
+    int rank(ToIntFunction<Task> isBefore) {
+        Node node = root;
+        int rank = 0;
+        while (node != null) {
+            if (isBefore.applyAsInt(node.task) > 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns a tree with the task added at its place in a tree sorted by {@code order}.
+     */
+    TaskTree insert(Task task, Comparator<Task> order) {
+        return new TaskTree(insert(root, task, order));
+    }
+
+    /**
+     * Returns a tree without the task that {@code order} considers equal to the given one,
+     * or this tree if there is none.
+     */
+    TaskTree remove(Task task, Comparator<Task> order) {
+        Node updated = remove(root, task, order);
+        return updated == root ? this : new TaskTree(updated);
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Returns an iterator that starts at a position, taking O(log n) to start and O(1) amortized per task.
+     *
+     * @param from First position to return; the iterator is empty if it is past the end.
+     */
+    Iterator<Task> iterator(int from) {
+        return new TreeIterator(root, from);
+    }
+
+    /**
+     * Returns a read-only list view of this tree. It never changes, because the tree does not.
+     */
+    List<Task> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return TaskTree.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return TaskTree.this.size();
+            }
+
+            @Override
+            public Iterator<Task> iterator() {
+                return TaskTree.this.iterator();
+            }
+        };
+    }
+
+    private static final class Node {
+        private final Node left;
+        private final Task task;
+        private final Node right;
+        private final int size;
+        private final int height;
+
+        private Node(Node left, Task task, Node right) {
+            this.left = left;
+            this.task = task;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static Node build(List<Task> tasks, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node(build(tasks, from, mid), tasks.get(mid), build(tasks, mid + 1, to));
+    }
+
+    /**
+     * Joins two subtrees whose heights differ by at most two around a task, rotating if needed.
+     */
+    private static Node balance(Node left, Task task, Node right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.left, left.task, new Node(left.right, task, right));
+            }
+            Node middle = left.right;
+            return new Node(new Node(left.left, left.task, middle.left), middle.task,
+                    new Node(middle.right, task, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(new Node(left, task, right.left), right.task, right.right);
+            }
+            Node middle = right.left;
+            return new Node(new Node(left, task, middle.left), middle.task,
+                    new Node(middle.right, right.task, right.right));
+        }
+        return new Node(left, task, right);
+    }
+
+    /**
+     * Joins two subtrees of any height around a task by descending the taller one to a matching height.
+     */
+    private static Node join(Node left, Task task, Node right) {
+        if (height(left) > height(right) + 1) {
+            return balance(left.left, left.task, join(left.right, task, right));
+        }
+        if (height(right) > height(left) + 1) {
+            return balance(join(left, task, right.left), right.task, right.right);
+        }
+        return new Node(left, task, right);
+    }
+
+    private static Node insertAt(Node node, int index, Task task) {
+        if (node == null) {
+            return new Node(null, task, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return balance(insertAt(node.left, index, task), node.task, node.right);
+        }
+        return balance(node.left, node.task, insertAt(node.right, index - leftSize - 1, task));
+    }
+
+    private static Node set(Node node, int index, Task task) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return new Node(set(node.left, index, task), node.task, node.right);
+        }
+        if (index > leftSize) {
+            return new Node(node.left, node.task, set(node.right, index - leftSize - 1, task));
+        }
+        return new Node(node.left, task, node.right);
+    }
+
+    private static Node removeAt(Node node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(removeAt(node.left, index), node.task, node.right);
+        }
+        if (index > leftSize) {
+            return balance(node.left, node.task, removeAt(node.right, index - leftSize - 1));
+        }
+        return removeRoot(node);
+    }
+
+    private static Node removeRoot(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node first = node.right;
+        while (first.left != null) {
+            first = first.left;
+        }
+        return balance(node.left, first.task, removeAt(node.right, 0));
+    }
+
+    private static Node insert(Node node, Task task, Comparator<Task> order) {
+        if (node == null) {
+            return new Node(null, task, null);
+        }
+        if (order.compare(task, node.task) < 0) {
+            return balance(insert(node.left, task, order), node.task, node.right);
+        }
+        return balance(node.left, node.task, insert(node.right, task, order));
+    }
+
+    private static Node remove(Node node, Task task, Comparator<Task> order) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = order.compare(task, node.task);
+        if (cmp < 0) {
+            Node left = remove(node.left, task, order);
+            return left == node.left ? node : balance(left, node.task, node.right);
+        }
+        if (cmp > 0) {
+            Node right = remove(node.right, task, order);
+            return right == node.right ? node : balance(node.left, node.task, right);
+        }
+        return removeRoot(node);
+    }
+
+    /**
+     * Walks the tree in order with an explicit stack of the nodes still to visit.
+     */
+    private static final class TreeIterator implements Iterator<Task> {
+        private final Node[] stack = new Node[MAX_HEIGHT];
+        private int depth;
+
+        private TreeIterator(Node node, int from) {
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (from < leftSize) {
+                    stack[depth++] = node;
+                    node = node.left;
+                } else if (from > leftSize) {
+                    from -= leftSize + 1;
+                    node = node.right;
+                } else {
+                    stack[depth++] = node;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public Task next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack[--depth];
+            for (Node next = node.right; next != null; next = next.left) {
+                stack[depth++] = next;
+            }
+            return node.task;
+        }
+    }
+}
@@ -16,6 +16,27 @@ public class Todo extends Task {
         super(description);
     }
 
+    /**
+     * Creates a Todo task with the given description and completion status.
+     *
+     * @param description Description of the todo task
+     * @param isDone Completion status of the todo task
+     */
+    public Todo(String description, boolean isDone) {
+        super(description, isDone);
+    }
+
+    /**
+     * Returns a new todo with the same description and the given completion status.
+     *
+     * @param isDone Completion status of the copy
+     * @return Copy of this todo without an ID
+     */
+    @Override
+    protected Task copy(boolean isDone) {
+        return new Todo(description, isDone);
+    }
+
     /**
      * Returns the string representation of the todo task.
      *
@@ -1,5 +1,11 @@
 package candy;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -10,12 +16,17 @@ import java.util.Scanner;
  *   <li>{@link #readCommand()}</li>
  *   <li>{@link #showMessage(String)}</li>
  *   <li>{@link #showError(String)}</li>
+ *   <li>{@link #getWriter()} and {@link #endMessage()} for long messages</li>
  * </ul>
  * GUI mode does NOT print directly; it calls the {@code getXxxText(...)} methods
  * and displays the returned strings.
  */
 public class Ui {
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
     private final Scanner scanner = new Scanner(System.in);
+    private final PrintWriter writer = new PrintWriter(
+            new BufferedWriter(new OutputStreamWriter(System.out), WRITER_BUFFER_SIZE));
 
     /**
      * Reads one trimmed line of input from standard input (terminal mode).
@@ -32,15 +43,36 @@ public class Ui {
      * @param message Message to be printed.
      */
     public void showMessage(String message) {
+        writer.flush();
         System.out.println(message);
     }
 
+    /**
+     * Returns a buffered writer over standard output (terminal mode).
+     * Long messages such as a full list are written here piece by piece instead of being built
+     * as one string; call {@link #endMessage()} once the message is complete.
+     *
+     * @return Writer for the current message.
+     */
+    public PrintWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Ends a message written through {@link #getWriter()} and flushes it to standard output.
+     */
+    public void endMessage() {
+        writer.println();
+        writer.flush();
+    }
+
     /**
      * Prints an error message to standard output (terminal mode).
      *
      * @param message Error message to be printed.
      */
     public void showError(String message) {
+        writer.flush();
         System.out.println(message);
     }
 
@@ -104,6 +136,41 @@ public class Ui {
         return "OK, I've marked this task as not done yet:\n" + task;
     }
 
+    /**
+     * Builds the text shown after marking several tasks as done.
+     *
+     * @param count Number of tasks selected.
+     * @return Formatted message.
+     */
+    public String getBulkMarkText(int count) {
+        return count == 0 ? "No tasks matched." : "Nice! I've marked " + count + " tasks as done.";
+    }
+
+    /**
+     * Builds the text shown after unmarking several tasks.
+     *
+     * @param count Number of tasks selected.
+     * @return Formatted message.
+     */
+    public String getBulkUnmarkText(int count) {
+        return count == 0 ? "No tasks matched." : "OK, I've marked " + count + " tasks as not done yet.";
+    }
+
+    /**
+     * Builds the text shown after deleting several tasks.
+     *
+     * @param count Number of tasks removed.
+     * @param size The updated total number of tasks.
+     * @return Formatted message.
+     */
+    public String getBulkDeleteText(int count, int size) {
+        if (count == 0) {
+            return "No tasks matched.";
+        }
+        return "Noted. I've removed " + count + " tasks.\n"
+                + "Now you have " + size + " tasks in the list.";
+    }
+
     /**
      * Builds the text for listing all tasks.
      *
@@ -111,10 +178,71 @@ public class Ui {
      * @return Formatted message.
      */
     public String getListText(TaskList tasks) {
+        try {
+            return getListText(tasks, 0, Parser.DEFAULT_PAGE_SIZE);
+        } catch (CandyException e) {
+            throw new IllegalStateException(e); // every list has a "page 0"
+        }
+    }
+
+    /**
+     * Builds the text for listing one page of tasks.
+     *
+     * @param tasks The current task list.
+     * @param page One-based page number, or 0 for all tasks.
+     * @param pageSize Number of tasks per page.
+     * @return Formatted message.
+     * @throws CandyException If the page does not exist.
+     */
+    public String getListText(TaskList tasks, int page, int pageSize) throws CandyException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeListText(tasks, page, pageSize, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the text for listing one page of tasks without building it in memory.
+     *
+     * @param tasks The current task list.
+     * @param page One-based page number, or 0 for all tasks.
+     * @param pageSize Number of tasks per page.
+     * @param out Destination of the text.
+     * @throws CandyException If the page does not exist.
+     * @throws IOException If the destination fails.
+     */
+    public void writeListText(TaskList tasks, int page, int pageSize, Appendable out)
+            throws CandyException, IOException {
         if (tasks.size() == 0) {
-            return "Your list is empty.";
+            out.append("Your list is empty.");
+            return;
         }
-        return "Here are your tasks:\n" + tasks.formatForDisplay();
+        writePage(tasks, "Here are your tasks", page, pageSize, out);
+    }
+
+    /**
+     * Builds the text shown after an undo.
+     *
+     * @param size Number of tasks in the list afterwards.
+     * @return Formatted message.
+     */
+    public String getUndoText(int size) {
+        return "Undone. I've put your list back the way it was before your last change.\n"
+                + "Now you have " + size + " tasks in the list.";
+    }
+
+    /**
+     * Builds the text shown after a redo.
+     *
+     * @param size Number of tasks in the list afterwards.
+     * @return Formatted message.
+     */
+    public String getRedoText(int size) {
+        return "Redone. I've made the change you undid again.\n"
+                + "Now you have " + size + " tasks in the list.";
     }
 
     /**
@@ -125,10 +253,140 @@ public class Ui {
      * @return Formatted message.
      */
     public String getFindText(String keyword, TaskList matches) {
+        try {
+            return getFindText(keyword, matches, 0, Parser.DEFAULT_PAGE_SIZE);
+        } catch (CandyException e) {
+            throw new IllegalStateException(e); // every list has a "page 0"
+        }
+    }
+
+    /**
+     * Builds the text for one page of find results.
+     *
+     * @param keyword The keyword searched for.
+     * @param matches The list of matched tasks.
+     * @param page One-based page number, or 0 for all matches.
+     * @param pageSize Number of matches per page.
+     * @return Formatted message.
+     * @throws CandyException If the page does not exist.
+     */
+    public String getFindText(String keyword, TaskList matches, int page, int pageSize) throws CandyException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeFindText(keyword, matches, page, pageSize, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the text for one page of find results without building it in memory.
+     *
+     * @param keyword The keyword searched for.
+     * @param matches The list of matched tasks.
+     * @param page One-based page number, or 0 for all matches.
+     * @param pageSize Number of matches per page.
+     * @param out Destination of the text.
+     * @throws CandyException If the page does not exist.
+     * @throws IOException If the destination fails.
+     */
+    public void writeFindText(String keyword, TaskList matches, int page, int pageSize, Appendable out)
+            throws CandyException, IOException {
+        if (matches.size() == 0) {
+            out.append("No matching tasks found for: ").append(keyword);
+            return;
+        }
+        writePage(matches, "Here are the matching tasks in your list", page, pageSize, out);
+    }
+
+    /**
+     * Builds the text for one page of filter results.
+     *
+     * @param conditions The conditions as typed.
+     * @param matches The list of matched tasks.
+     * @param page One-based page number, or 0 for all matches.
+     * @param pageSize Number of matches per page.
+     * @return Formatted message.
+     * @throws CandyException If the page does not exist.
+     */
+    public String getFilterText(String conditions, TaskList matches, int page, int pageSize) throws CandyException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeFilterText(conditions, matches, page, pageSize, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the text for one page of filter results without building it in memory.
+     *
+     * @param conditions The conditions as typed.
+     * @param matches The list of matched tasks.
+     * @param page One-based page number, or 0 for all matches.
+     * @param pageSize Number of matches per page.
+     * @param out Destination of the text.
+     * @throws CandyException If the page does not exist.
+     * @throws IOException If the destination fails.
+     */
+    public void writeFilterText(String conditions, TaskList matches, int page, int pageSize, Appendable out)
+            throws CandyException, IOException {
         if (matches.size() == 0) {
-            return "No matching tasks found for: " + keyword;
+            out.append("No tasks match: ").append(conditions);
+            return;
+        }
+        writePage(matches, "Here are the tasks matching your filter", page, pageSize, out);
+    }
+
+    /**
+     * Builds the text for ranked search results. Each task shows its ID, which mark, unmark and delete
+     * accept as {@code #id}, and how similar it is to the query.
+     *
+     * @param query The words searched for.
+     * @param results Results, most similar first.
+     * @return Formatted message.
+     */
+    public String getSearchText(String query, List<SearchResult> results) {
+        if (results.isEmpty()) {
+            return "No similar tasks found for: " + query;
+        }
+        StringBuilder sb = new StringBuilder("Here are the closest matches in your list:\n");
+        for (int i = 0; i < results.size(); i++) {
+            SearchResult result = results.get(i);
+            sb.append(i + 1).append(". ").append(result.getTask())
+                    .append(" (#").append(result.getTask().getId())
+                    .append(", ").append(Math.round(result.getScore() * 100)).append("% similar)\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes a title line followed by the numbered tasks of one page.
+     * Page 0 writes every task under the plain title.
+     */
+    private void writePage(TaskList tasks, String title, int page, int pageSize, Appendable out)
+            throws CandyException, IOException {
+        int size = tasks.size();
+        if (page == 0) {
+            out.append(title).append(":\n");
+            tasks.writeDisplay(out, 0, size);
+            return;
+        }
+
+        long pageCount = (size + (long) pageSize - 1) / pageSize;
+        if (page > pageCount) {
+            throw new CandyException("Page " + page + " does not exist. There "
+                    + (pageCount == 1 ? "is only 1 page." : "are only " + pageCount + " pages."));
         }
-        return "Here are the matching tasks in your list:\n" + matches.formatForDisplay();
+        int from = (page - 1) * pageSize;
+        int to = (int) Math.min((long) from + pageSize, size);
+        out.append(title)
+                .append(" (page ").append(String.valueOf(page)).append(" of ").append(String.valueOf(pageCount))
+                .append(", tasks ").append(String.valueOf(from + 1)).append('-').append(String.valueOf(to))
+                .append(" of ").append(String.valueOf(size)).append("):\n");
+        tasks.writeDisplay(out, from, to);
     }
 
     /**
@@ -136,15 +394,20 @@ public class Ui {
      */
     public String getHelpText() {
         return "Available commands:\n"
-                + "list\n"
+                + "list [page] [--page-size <n>]\n"
                 + "todo <task>\n"
                 + "deadline <task> /by <yyyy-mm-dd>\n"
                 + "event <task> /from <start> /to <end>\n"
-                + "mark <task number>\n"
-                + "unmark <task number>\n"
-                + "delete <task number>\n"
-                + "find <keyword>\n"
+                + "mark <task number | #id | from-to,... | done>\n"
+                + "unmark <task number | #id | from-to,... | done>\n"
+                + "delete <task number | #id | from-to,... | done>\n"
+                + "find <keyword> [--page <n>] [--page-size <n>]\n"
+                + "search <words> [--top <n>]\n"
+                + "filter <conditions> [--page <n>] [--page-size <n>]\n"
+                + "undo\n"
+                + "redo\n"
                 + "sort\n"
+                + "stats\n"
                 + "bye";
     }
 }
\ No newline at end of file
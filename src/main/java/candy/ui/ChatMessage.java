@@ -0,0 +1,29 @@
+package candy.ui;
+
+/**
+ * One message in the chat window, kept as plain data.
+ * The window only builds nodes for the messages currently on screen.
+ */
+public class ChatMessage {
+    private final String text;
+    private final boolean isFromUser;
+
+    /**
+     * Creates a message.
+     *
+     * @param text Text of the message.
+     * @param isFromUser True if the user sent it, false if it is Candy's reply.
+     */
+    public ChatMessage(String text, boolean isFromUser) {
+        this.text = text;
+        this.isFromUser = isFromUser;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isFromUser() {
+        return isFromUser;
+    }
+}
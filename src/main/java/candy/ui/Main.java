@@ -7,11 +7,13 @@ import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 
 public class Main extends Application {
+    private MainWindow mainWindow;
 
     @Override
     public void start(Stage stage) throws Exception {
         FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("/view/MainWindow.fxml"));
         AnchorPane root = fxmlLoader.load();
+        mainWindow = fxmlLoader.getController();
 
         Scene scene = new Scene(root);
         scene.getStylesheets().add(Main.class.getResource("/view/MainWindow.css").toExternalForm());
@@ -24,4 +26,11 @@ public class Main extends Application {
         stage.setScene(scene);
         stage.show();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void stop() {
+        if (mainWindow != null) {
+            mainWindow.shutdown();
+        }
+    }
+}
@@ -1,24 +1,71 @@
 package candy.ui;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import candy.Candy;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
-import javafx.scene.layout.VBox;
 import javafx.application.Platform;
 import javafx.animation.PauseTransition;
 import javafx.util.Duration;
 
+/**
+ * Controller for the chat window.
+ * <p>
+ * The conversation is a list of {@link ChatMessage}s shown in a {@link ListView}, which only builds
+ * cells for the messages on screen and reuses them while scrolling. At most {@link #HISTORY_LIMIT}
+ * messages are kept; the oldest are dropped first. Set it with {@code -Dcandy.ui.historyLimit=N}.
+ * <p>
+ * Commands run one at a time, in the order they were sent, on a worker thread, so a slow save or a large
+ * {@code list} never freezes the window. Until a reply arrives its place shows {@link #PENDING_TEXT}.
+ * The task list is loaded by the same worker as its first job, so the window appears before loading
+ * finishes and commands sent meanwhile wait their turn.
+ */
 public class MainWindow {
-    private final Candy candy = new Candy();
+    /** Most messages the window keeps, counting both the user's and Candy's. */
+    static final int HISTORY_LIMIT = Math.max(2, Integer.getInteger("candy.ui.historyLimit", 1000));
 
-    @FXML
-    private ScrollPane scrollPane;
+    /** Space left beside each message for the list's padding and scroll bar. */
+    private static final double CELL_INSET = 30.0;
+
+    /** Longest time closing the window waits for commands still running, such as a final save. */
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    /** Shown in place of a reply that is still being worked out. */
+    static final String PENDING_TEXT = "...";
+
+    /** Shown in reply to a command that fails unexpectedly. */
+    static final String ERROR_TEXT = "Something went wrong. Please try again.";
+
+    /** Shown in reply to every command when Candy could not be started. */
+    static final String NOT_STARTED_TEXT = "Sorry, I could not start up. Please restart me.";
+
+    /** Whether to quit as soon as the window is up and the tasks are loaded, used to record startup. */
+    private static final boolean EXIT_AFTER_STARTUP = Boolean.getBoolean("candy.exitAfterStartup");
+
+    /** Created and used only on the worker thread; null if creating it failed. */
+    private Candy candy;
+
+    /** Runs commands in order, off the JavaFX application thread. */
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "candy-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ObservableList<ChatMessage> messages = FXCollections.observableArrayList();
 
     @FXML
-    private VBox dialogContainer;
+    private ListView<ChatMessage> dialogList;
 
     @FXML
     private TextField userInput;
@@ -26,43 +73,125 @@ public class MainWindow {
     @FXML
     private Button sendButton;
 
+    // Decoded in the background; cells show them once they are ready.
     private final Image userImage =
-            new Image(this.getClass().getResourceAsStream("/images/user1.jpeg"));
+            new Image(this.getClass().getResource("/images/user1.jpeg").toExternalForm(), true);
     private final Image dukeImage =
-            new Image(this.getClass().getResourceAsStream("/images/user2.jpeg"));
+            new Image(this.getClass().getResource("/images/user2.jpeg").toExternalForm(), true);
 
     @FXML
     public void initialize() {
-        dialogContainer.getChildren().add(
-                DialogBox.getCandyDialog("Hello! I'm Candy 😊\nWhat can I do for you?", dukeImage)
-        );
-
-        scrollPane.setFitToWidth(true);
-        scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.ALWAYS);
-        scrollPane.setVvalue(1.0);
-
-        dialogContainer.heightProperty().addListener(
-                (obs, oldVal, newVal) -> scrollPane.setVvalue(1.0)
-        );
+        dialogList.setItems(messages);
+        dialogList.setCellFactory(list -> new ChatCell(list));
+        dialogList.setFocusTraversable(false);
+
+        addMessages(new ChatMessage("Hello! I'm Candy 😊\nWhat can I do for you?", false));
+
+        worker.execute(() -> {
+            try {
+                candy = new Candy();
+                candy.closeAtShutdown();
+            } catch (Exception e) {
+                candy = null;
+                Platform.runLater(() -> addMessages(new ChatMessage(NOT_STARTED_TEXT, false)));
+            }
+            if (EXIT_AFTER_STARTUP) {
+                Platform.runLater(Platform::exit);
+            }
+        });
     }
 
     @FXML
     private void handleUserInput() {
         String userText = userInput.getText();
-        String candyText = candy.getResponse(userText);
+        ChatMessage pending = new ChatMessage(PENDING_TEXT, false);
+        addMessages(new ChatMessage(userText, true), pending);
+        userInput.clear();
 
-        dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(userText, userImage),
-                DialogBox.getCandyDialog(candyText, dukeImage)
-        );
+        worker.execute(() -> {
+            String candyText = respond(userText);
+            Platform.runLater(() -> showReply(pending, candyText, userText.equalsIgnoreCase("bye")));
+        });
+    }
 
-        userInput.clear();
+    /**
+     * Runs one command on the worker thread. Never throws, so every pending message gets a reply.
+     *
+     * @return Candy's reply, or an error message if Candy is not running or the command failed.
+     */
+    private String respond(String userText) {
+        if (candy == null) {
+            return NOT_STARTED_TEXT;
+        }
+        try {
+            return candy.getResponse(userText);
+        } catch (Exception e) {
+            return ERROR_TEXT;
+        }
+    }
+
+    /**
+     * Replaces a pending message with Candy's reply, and closes the window shortly after a goodbye.
+     */
+    private void showReply(ChatMessage pending, String candyText, boolean isBye) {
+        int at = messages.lastIndexOf(pending);
+        if (at >= 0) {
+            messages.set(at, new ChatMessage(candyText, false));
+        }
 
-        if (userText.equalsIgnoreCase("bye")) {
+        if (isBye) {
             PauseTransition delay = new PauseTransition(Duration.seconds(1.5));
             delay.setOnFinished(event -> Platform.exit());
             delay.play();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Lets the commands already sent finish, then stops the worker. Called when the application stops.
+     */
+    void shutdown() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Appends messages, drops the oldest ones beyond {@link #HISTORY_LIMIT}, and scrolls to the newest.
+     */
+    private void addMessages(ChatMessage... added) {
+        messages.addAll(added);
+        int excess = messages.size() - HISTORY_LIMIT;
+        if (excess > 0) {
+            messages.remove(0, excess);
+        }
+        dialogList.scrollTo(messages.size() - 1);
+    }
+
+    /**
+     * List cell that reuses one {@link DialogBox} for whichever message it is showing.
+     */
+    private class ChatCell extends ListCell<ChatMessage> {
+        private final DialogBox dialogBox = new DialogBox();
+
+        private ChatCell(ListView<ChatMessage> list) {
+            dialogBox.prefWidthProperty().bind(list.widthProperty().subtract(CELL_INSET));
+            dialogBox.maxWidthProperty().bind(dialogBox.prefWidthProperty());
+            setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+        }
+
+        @Override
+        protected void updateItem(ChatMessage message, boolean isEmpty) {
+            super.updateItem(message, isEmpty);
+            if (isEmpty || message == null) {
+                setGraphic(null);
+                return;
+            }
+            Image image = message.isFromUser() ? userImage : dukeImage;
+            dialogBox.show(message.getText(), image, message.isFromUser());
+            setGraphic(dialogBox);
+        }
+    }
+}
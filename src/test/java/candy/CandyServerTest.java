@@ -0,0 +1,100 @@
+package candy;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CandyServerTest {
+    @TempDir
+    Path tempDir;
+
+    private static String readReply(BufferedReader in) throws Exception {
+        StringBuilder reply = new StringBuilder();
+        String line;
+        while (!(line = in.readLine()).equals(".")) {
+            reply.append(line.startsWith("..") ? line.substring(1) : line).append('\n');
+        }
+        return reply.toString();
+    }
+
+    private static String send(PrintWriter out, BufferedReader in, String command) throws Exception {
+        out.println(command);
+        out.flush();
+        return readReply(in);
+    }
+
+    @Test
+    public void serve_manyConcurrentClients_applyEveryChangeAndReplayTheSame() throws Exception {
+        StorageConfig config = new StorageConfig();
+        config.isJournaled = true;
+        config.durability = Durability.GROUP_COMMIT;
+        String file = tempDir.resolve("candy.txt").toString();
+        Candy candy = new Candy(file, config);
+        CandyServer server = new CandyServer(candy, 0);
+        Thread acceptor = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        acceptor.start();
+
+        int clients = 50;
+        int addsPerClient = 40;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<?>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            results.add(pool.submit(() -> {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                        BufferedReader in = new BufferedReader(
+                                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                        PrintWriter out = new PrintWriter(
+                                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                    assertTrue(readReply(in).startsWith("Hello! I'm Candy"));
+                    for (int i = 0; i < addsPerClient; i++) {
+                        String reply = send(out, in, "todo client " + client + " task " + i);
+                        assertTrue(reply.startsWith("Got it."), reply);
+                        if (i % 4 == 3) {
+                            assertTrue(send(out, in, "delete 1").startsWith("Noted."));
+                        }
+                        if (i % 10 == 0) {
+                            String found = send(out, in, "find client " + client);
+                            assertTrue(found.startsWith("Here are") || found.startsWith("No matching"), found);
+                        }
+                    }
+                    assertEquals("Bye. Hope to see you again soon!\n", send(out, in, "bye"));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+        server.close();
+        acceptor.join();
+
+        String expected = candy.getResponse("list 1 --page-size 1");
+        assertTrue(expected.contains("of " + (clients * addsPerClient * 3 / 4) + "):"), expected);
+        Candy reloaded = new Candy(file, config);
+        assertEquals(candy.getResponse("list"), reloaded.getResponse("list"));
+    }
+}
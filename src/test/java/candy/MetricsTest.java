@@ -0,0 +1,40 @@
+package candy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest {
+    @Test
+    public void report_recordedPhases_showCountsAndBoundedPercentiles() {
+        Metrics metrics = new Metrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.record(CommandType.TODO, Metrics.Phase.PARSE, i * 1000L);
+        }
+        metrics.recordInvalid(500);
+
+        String report = metrics.report();
+
+        // p50 of 1..100 us lies in the bucket [49.152, 57.344) us and p99 is capped by the 100 us maximum.
+        assertTrue(report.contains("todo       parse         100       57.3      100.0      100.0"), report);
+        assertTrue(report.contains("(invalid)  parse           1"), report);
+        assertFalse(report.contains("todo       persist"), report);
+    }
+
+    @Test
+    public void finishCommand_persistTimeReported_isSplitFromExecute() throws Exception {
+        Metrics metrics = new Metrics();
+
+        long start = System.nanoTime();
+        metrics.addPersistNanos(2_000_000);
+        metrics.finishCommand(CommandType.LIST, start - 3_000_000);
+        metrics.finishCommand(CommandType.SORT, System.nanoTime());
+
+        String report = metrics.report();
+        assertTrue(report.contains("list       persist         1     2000.0     2000.0     2000.0"), report);
+        assertTrue(report.contains("list       execute         1"), report);
+        assertTrue(report.contains("sort       execute         1"), report);
+        assertFalse(report.contains("sort       persist"), report);
+    }
+}
@@ -0,0 +1,90 @@
+package candy;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParserTest {
+
+    @Test
+    public void parse_eventWithExtraSpaces_slicesTrimmedFields() throws CandyException {
+        ParsedCommand command = Parser.parse("  event \t team  sync  /from 2026-01-20  /to  2026-01-22 ");
+        assertEquals(CommandType.EVENT, command.type);
+        assertEquals("team  sync", command.description);
+        assertEquals("2026-01-20", command.fromTime);
+        assertEquals("2026-01-22", command.toTime);
+    }
+
+    @Test
+    public void parse_findWithTrailingOptions_keepsKeywordSpacing() throws CandyException {
+        ParsedCommand command = Parser.parse("find read  book --page 2 --page-size 5");
+        assertEquals("read  book", command.keyword);
+        assertEquals(2, command.page);
+        assertEquals(5, command.pageSize);
+    }
+
+    @Test
+    public void parse_searchWithTop_readsLimitAfterWords() throws CandyException {
+        ParsedCommand command = Parser.parse("search return  book --top 3");
+        assertEquals(CommandType.SEARCH, command.type);
+        assertEquals("return  book", command.keyword);
+        assertEquals(3, command.limit);
+        assertEquals(Parser.DEFAULT_SEARCH_LIMIT, Parser.parse("search book").limit);
+        assertThrows(CandyException.class, () -> Parser.parse("search ab"));
+        assertThrows(CandyException.class, () -> Parser.parse("search book --top 0"));
+    }
+
+    @Test
+    public void parse_filter_notBindsTighterThanAndThanOr() throws CandyException {
+        ParsedCommand command = Parser.parse("filter type:todo or not done report --page 1");
+        assertEquals(CommandType.FILTER, command.type);
+        assertEquals("type:todo or not done report", command.keyword);
+        assertEquals(1, command.page);
+
+        Task todo = new Todo("water plants");
+        Task report = new Deadline("write report", LocalDate.parse("2026-02-01"));
+        assertTrue(command.filter.matches(todo.withDone(true)));
+        assertTrue(command.filter.matches(report));
+        assertFalse(command.filter.matches(report.withDone(true)));
+        assertFalse(TaskFilter.parse("before:2026-02-01").matches(report));
+        assertTrue(TaskFilter.parse("(before:2026-02-02 or type:event) \"WRITE rep\"").matches(report));
+
+        assertThrows(CandyException.class, () -> Parser.parse("filter"));
+        assertThrows(CandyException.class, () -> Parser.parse("filter (done or type:todo"));
+        assertThrows(CandyException.class, () -> Parser.parse("filter type:chore"));
+        assertThrows(CandyException.class, () -> Parser.parse("filter done and"));
+        assertThrows(CandyException.class, () -> Parser.parse("filter after:tomorrow"));
+    }
+
+    @Test
+    public void parse_indexWithTrailingText_ignoresTextWithOrWithoutHyphen() throws CandyException {
+        assertEquals(1, Parser.parse("mark 2 foo").index);
+        assertEquals(1, Parser.parse("mark 2 foo-bar").index);
+        assertEquals(1, Parser.parse("delete 2 a,b").index);
+        assertNull(Parser.parse("mark 2 foo-bar").selection);
+
+        TaskList tasks = new TaskList();
+        for (int i = 1; i <= 12; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        ParsedCommand range = Parser.parse("mark 2 - 3, 11 foo-bar");
+        assertEquals(-1, range.index);
+        assertArrayEquals(new int[] {1, 2, 10}, range.selection.resolve(tasks));
+        assertThrows(CandyException.class, () -> Parser.parse("mark 3-1"));
+        assertThrows(CandyException.class, () -> Parser.parse("mark 2-x"));
+    }
+
+    @Test
+    public void parse_commandWordWithSuffix_rejected() {
+        CandyException e = assertThrows(CandyException.class, () -> Parser.parse("marks 1"));
+        assertEquals("Unknown command. Type 'help' to see available commands.", e.getMessage());
+        assertThrows(CandyException.class, () -> Parser.parse("deadline return book /by"));
+    }
+}
@@ -0,0 +1,607 @@
+package candy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageTest {
+    @TempDir
+    Path tempDir;
+
+    private TaskList load(Storage storage) throws Exception {
+        TaskList tasks = new TaskList();
+        for (String line : storage.loadLines()) {
+            Task task = Parser.parseLine(line);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        storage.replayJournal(tasks);
+        return tasks;
+    }
+
+    private static List<String> savedLines(TaskList tasks) {
+        List<String> lines = new ArrayList<>();
+        for (Task task : tasks.snapshot()) {
+            lines.add(Parser.toSavedLine(task));
+        }
+        return lines;
+    }
+
+    private StorageConfig journaled(long compactionBytes) {
+        StorageConfig config = new StorageConfig();
+        config.isJournaled = true;
+        config.journalCompactionBytes = compactionBytes;
+        return config;
+    }
+
+    @Test
+    public void journal_replayRestoresAllChanges() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        Storage storage = new Storage(file, journaled(Long.MAX_VALUE));
+        TaskList tasks = load(storage);
+
+        Task todo = new Todo("read book");
+        tasks.add(todo);
+        storage.recordAdd(tasks, todo);
+        Task deadline = new Deadline("return book", LocalDate.parse("2026-01-20"));
+        tasks.add(deadline);
+        storage.recordAdd(tasks, deadline);
+        Task event = new Event("meeting", "Mon 2pm", "Mon 4pm");
+        tasks.add(event);
+        storage.recordAdd(tasks, event);
+        tasks.mark(1);
+        storage.recordMark(tasks, deadline.getId());
+        tasks.remove(0);
+        storage.recordDelete(tasks, todo.getId());
+        storage.save(tasks);
+
+        assertTrue(Files.exists(tempDir.resolve("candy.txt.journal")));
+        TaskList reloaded = load(new Storage(file, journaled(Long.MAX_VALUE)));
+        assertEquals(tasks.toLines(), reloaded.toLines());
+    }
+
+    @Test
+    public void journal_compactionFoldsJournalIntoSnapshot() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        Storage storage = new Storage(file, journaled(200));
+        TaskList tasks = load(storage);
+
+        for (int i = 0; i < 50; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            storage.recordAdd(tasks, task);
+        }
+        tasks.mark(10);
+        storage.recordMark(tasks, tasks.get(10).getId());
+        storage.save(tasks);
+
+        List<String> snapshot = Files.readAllLines(tempDir.resolve("candy.txt"));
+        assertTrue(snapshot.get(0).startsWith("# "));
+        assertTrue(snapshot.size() > 1);
+        assertFalse(Files.exists(tempDir.resolve("candy.txt.journal.old")));
+
+        TaskList reloaded = load(new Storage(file, journaled(200)));
+        assertEquals(tasks.toLines(), reloaded.toLines());
+    }
+
+    @Test
+    public void compaction_failedSnapshotWrites_keepRotatedRecords() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        Path rotated = tempDir.resolve("candy.txt.journal.old");
+        // A directory in the place of the temporary file makes every snapshot write fail.
+        Path blocker = Files.createDirectory(tempDir.resolve("candy.txt.tmp"));
+        Storage storage = new Storage(file, journaled(200));
+        TaskList tasks = load(storage);
+        for (int i = 0; i < 20; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            storage.recordAdd(tasks, task);
+        }
+        storage.flush();
+        assertTrue(Files.exists(rotated));
+
+        // A restart while snapshots still fail keeps both journals; the next rotation appends to the old one.
+        Storage restarted = new Storage(file, journaled(200));
+        TaskList reloaded = load(restarted);
+        assertEquals(tasks.toLines(), reloaded.toLines());
+        for (int i = 20; i < 40; i++) {
+            Task task = new Todo("task " + i);
+            reloaded.add(task);
+            restarted.recordAdd(reloaded, task);
+        }
+        restarted.flush();
+        assertEquals(reloaded.toLines(), load(new Storage(file, journaled(200))).toLines());
+
+        Files.delete(blocker);
+        restarted.flush();
+        assertFalse(Files.exists(rotated));
+        assertEquals(reloaded.toLines(), load(new Storage(file, journaled(200))).toLines());
+    }
+
+    @Test
+    public void journal_nonAsciiRecords_countBytesTowardCompaction() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        Storage storage = new Storage(file, journaled(100));
+        TaskList tasks = load(storage);
+
+        // 61 characters, but 141 bytes in UTF-8.
+        Task task = new Todo("日".repeat(40));
+        tasks.add(task);
+        storage.recordAdd(tasks, task);
+        storage.flush();
+
+        assertEquals(List.of("# 1 2", "1 | T | 0 | " + "日".repeat(40)),
+                Files.readAllLines(tempDir.resolve("candy.txt")));
+    }
+
+    @Test
+    public void plainSave_afterJournal_removesJournal() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        Storage journalStorage = new Storage(file, journaled(Long.MAX_VALUE));
+        TaskList tasks = load(journalStorage);
+        Task todo = new Todo("read book");
+        tasks.add(todo);
+        journalStorage.recordAdd(tasks, todo);
+        journalStorage.save(tasks);
+
+        Storage plainStorage = new Storage(file);
+        TaskList reloaded = load(plainStorage);
+        assertEquals(1, reloaded.size());
+        plainStorage.save(reloaded);
+
+        assertFalse(Files.exists(tempDir.resolve("candy.txt.journal")));
+        assertEquals(List.of("# 1 2", "1 | T | 0 | read book"), Files.readAllLines(tempDir.resolve("candy.txt")));
+    }
+
+    @Test
+    public void groupCommit_journal_flushWritesEveryRecord() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        StorageConfig config = journaled(2000);
+        config.durability = Durability.GROUP_COMMIT;
+        Storage storage = new Storage(file, config);
+        TaskList tasks = load(storage);
+
+        for (int i = 0; i < 300; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            storage.recordAdd(tasks, task);
+        }
+        Task removed = tasks.remove(5);
+        storage.recordDelete(tasks, removed.getId());
+        storage.save(tasks);
+
+        TaskList reloaded = load(new Storage(file, journaled(2000)));
+        assertEquals(tasks.toLines(), reloaded.toLines());
+    }
+
+    @Test
+    public void groupCommit_failedJournalWrite_isRetriedInOrder() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        StorageConfig config = journaled(1 << 20);
+        config.durability = Durability.GROUP_COMMIT;
+        Storage storage = new Storage(file, config);
+        TaskList tasks = load(storage);
+        // A directory in the journal's place makes every journal write fail.
+        Path journal = Files.createDirectory(tempDir.resolve("candy.txt.journal"));
+
+        for (String description : List.of("read book", "return book", "buy milk")) {
+            Task task = new Todo(description);
+            tasks.add(task);
+            storage.recordAdd(tasks, task);
+        }
+        storage.flush();
+        assertTrue(Files.isDirectory(journal));
+
+        Files.delete(journal);
+        Task removed = tasks.remove(0);
+        storage.recordDelete(tasks, removed.getId());
+        storage.flush();
+
+        assertEquals(tasks.toLines(), load(new Storage(file, journaled(1 << 20))).toLines());
+    }
+
+    @Test
+    public void periodic_plain_coalescesIntoOneSnapshot() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        StorageConfig config = new StorageConfig();
+        config.durability = Durability.PERIODIC;
+        config.periodicFlushMillis = 60_000;
+        Storage storage = new Storage(file, config);
+        TaskList tasks = load(storage);
+
+        for (int i = 0; i < 20; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            storage.recordAdd(tasks, task);
+        }
+        assertTrue(Files.readAllLines(tempDir.resolve("candy.txt")).isEmpty());
+
+        storage.flush();
+        assertEquals(tasks.toLines(), load(new Storage(file)).toLines());
+    }
+
+    @Test
+    public void close_periodicJournal_writesQueuedRecordsAndKeepsWorking() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        StorageConfig config = journaled(1 << 20);
+        config.durability = Durability.PERIODIC;
+        config.periodicFlushMillis = 60_000;
+        Storage storage = new Storage(file, config);
+        TaskList tasks = load(storage);
+
+        Task first = new Todo("read book");
+        tasks.add(first);
+        storage.recordAdd(tasks, first);
+        storage.close();
+        assertEquals(tasks.toLines(), load(new Storage(file, journaled(1 << 20))).toLines());
+
+        Task second = new Todo("return book");
+        tasks.add(second);
+        storage.recordAdd(tasks, second);
+        storage.close();
+        storage.close();
+        assertEquals(tasks.toLines(), load(new Storage(file, journaled(1 << 20))).toLines());
+    }
+
+    @Test
+    public void loadTasks_streamsSameTasksAsParseLine() throws Exception {
+        Path file = tempDir.resolve("candy.txt");
+        String longDescription = "x".repeat(200_000);
+        List<String> lines = List.of(
+                "T | 0 | read book",
+                "D|1|return book|2026-01-20",
+                "E | 1 | project meeting | Mon 2pm | Mon 4pm\r",
+                "T | 0 | ",
+                "Q | 0 | unknown type",
+                "T | 1 | " + longDescription,
+                "D | 0 | leap day | 2024-02-29");
+        Files.write(file, lines);
+
+        TaskList streamed = new TaskList();
+        LoadStats stats = new Storage(file.toString()).loadTasks(streamed);
+
+        TaskList parsed = new TaskList();
+        for (String line : lines) {
+            Task task = Parser.parseLine(line);
+            if (task != null) {
+                parsed.add(task);
+            }
+        }
+        assertEquals(5, streamed.size());
+        assertEquals(parsed.toLines(), streamed.toLines());
+        assertEquals(lines.size(), stats.getLineCount());
+        assertEquals(longDescription, streamed.get(3).getDescription());
+    }
+
+    @Test
+    public void binaryFormat_roundTripsAndIsDetectedOnLoad() throws Exception {
+        String file = tempDir.resolve("candy.bin").toString();
+        StorageConfig config = new StorageConfig();
+        config.format = StorageFormat.BINARY;
+        Storage storage = new Storage(file, config);
+        TaskList tasks = new TaskList();
+        storage.loadTasks(tasks);
+
+        Task todo = new Todo("read book 📚");
+        tasks.add(todo);
+        storage.recordAdd(tasks, todo);
+        Task deadline = new Deadline("return book", LocalDate.parse("2026-01-20"));
+        tasks.add(deadline);
+        storage.recordAdd(tasks, deadline);
+        Task event = new Event("meeting", "Mon 2pm", "Mon 4pm");
+        tasks.add(event);
+        storage.recordAdd(tasks, event);
+        Task farFuture = new Deadline("far future", LocalDate.parse("+9999999-01-01"));
+        tasks.add(farFuture);
+        storage.recordAdd(tasks, farFuture);
+        tasks.mark(1);
+        storage.recordMark(tasks, deadline.getId());
+
+        byte[] head = Files.readAllBytes(tempDir.resolve("candy.bin"));
+        assertTrue(BinaryTaskCodec.hasMagic(head, head.length));
+
+        TaskList reloaded = new TaskList();
+        new Storage(file).loadTasks(reloaded);
+        assertEquals(tasks.toLines(), reloaded.toLines());
+    }
+
+    @Test
+    public void binaryFormat_corruptLengths_failCleanly() throws Exception {
+        String large = "x".repeat(200_000);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        BinaryTaskCodec.write(written, List.of(new Todo(large)), 1, 0);
+        TaskList roundTripped = new TaskList();
+        BinaryTaskCodec.read(new ByteArrayInputStream(written.toByteArray()), roundTripped);
+        assertEquals(large, roundTripped.get(0).getDescription());
+
+        for (int count : new int[] {-1, Integer.MAX_VALUE}) {
+            ByteArrayOutputStream corrupt = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(corrupt);
+            out.writeInt(BinaryTaskCodec.MAGIC);
+            out.writeShort(BinaryTaskCodec.VERSION);
+            out.writeInt(count);
+            out.writeLong(0);
+            out.writeInt(2);
+            out.writeByte(0);
+            out.writeByte(1);
+            out.write(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07});
+            TaskList tasks = new TaskList();
+            assertThrows(IOException.class,
+                    () -> BinaryTaskCodec.read(new ByteArrayInputStream(corrupt.toByteArray()), tasks));
+            assertEquals(0, tasks.size());
+        }
+    }
+
+    @Test
+    public void compressed_eitherFormat_isSmallerAndDetectedOnLoad() throws Exception {
+        TaskList tasks = new TaskList();
+        for (int i = 0; i < 500; i++) {
+            tasks.add(i % 2 == 0 ? new Todo("read book " + i)
+                    : new Deadline("return book " + i, LocalDate.parse("2026-01-20").plusDays(i)));
+        }
+        tasks.mark(3);
+        Path plain = tempDir.resolve("plain.txt");
+        new Storage(plain.toString()).save(tasks);
+
+        for (StorageFormat format : StorageFormat.values()) {
+            Path file = tempDir.resolve("candy-" + format + ".gz");
+            StorageConfig config = new StorageConfig();
+            config.format = format;
+            config.isCompressed = true;
+            new Storage(file.toString(), config).save(tasks);
+
+            byte[] head = Files.readAllBytes(file);
+            assertEquals(0x1f, head[0] & 0xff);
+            assertEquals(0x8b, head[1] & 0xff);
+            assertTrue(head.length < Files.size(plain) / 3);
+
+            for (boolean isLazy : new boolean[] {false, true}) {
+                StorageConfig plainConfig = new StorageConfig();
+                plainConfig.isLazy = isLazy;
+                TaskList reloaded = new TaskList();
+                new Storage(file.toString(), plainConfig).loadTasks(reloaded);
+                assertEquals(tasks.toLines(), reloaded.toLines());
+            }
+            assertEquals(savedLines(tasks), new Storage(file.toString()).loadLines());
+        }
+    }
+
+    @Test
+    public void convert_textToBinaryAndBack() throws Exception {
+        Path text = tempDir.resolve("candy.txt");
+        List<String> lines = List.of("T | 0 | read book", "D | 1 | return book | 2026-01-20",
+                "E | 1 | project meeting | Mon 2pm | Mon 4pm");
+        Files.write(text, lines);
+        String binary = tempDir.resolve("candy.bin").toString();
+
+        assertEquals(3, Storage.convert(text.toString(), binary, StorageFormat.BINARY));
+        List<String> savedLines = List.of("1 | T | 0 | read book", "2 | D | 1 | return book | 2026-01-20",
+                "3 | E | 1 | project meeting | Mon 2pm | Mon 4pm");
+        assertEquals(savedLines, new Storage(binary).loadLines());
+
+        Path back = tempDir.resolve("back.txt");
+        Storage.convert(binary, back.toString(), StorageFormat.TEXT);
+        assertEquals(savedLines, new Storage(back.toString()).loadLines());
+    }
+
+    @Test
+    public void journal_bulkCommands_writeOneRecordEachAndReplay() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        Storage storage = new Storage(file, journaled(Long.MAX_VALUE));
+        TaskList tasks = load(storage);
+        Ui ui = new Ui();
+        for (int i = 1; i <= 20; i++) {
+            Parser.parse("todo task " + i).execute(tasks, ui, storage);
+        }
+
+        Parser.parse("mark 1,4,9-12").execute(tasks, ui, storage);
+        assertEquals("Noted. I've removed 4 tasks.\nNow you have 16 tasks in the list.",
+                Parser.parse("delete 2-3, 11-12").execute(tasks, ui, storage));
+        assertEquals("Noted. I've removed 4 tasks.\nNow you have 12 tasks in the list.",
+                Parser.parse("delete done").execute(tasks, ui, storage));
+        assertEquals("No tasks matched.", Parser.parse("delete done").execute(tasks, ui, storage));
+        storage.save(tasks);
+
+        List<String> journal = Files.readAllLines(tempDir.resolve("candy.txt.journal"));
+        assertEquals(23, journal.size());
+        assertEquals("21 | M | #1,4,9-12", journal.get(20));
+        assertEquals("22 | X | #2-3,11-12", journal.get(21));
+        TaskList reloaded = load(new Storage(file, journaled(Long.MAX_VALUE)));
+        assertEquals(savedLines(tasks), savedLines(reloaded));
+        assertEquals("[T][ ] task 5", reloaded.get(0).toString());
+        assertEquals(12, reloaded.size());
+    }
+
+    @Test
+    public void ids_eitherFormatAndMode_surviveRestartAndAreNotReused() throws Exception {
+        for (StorageFormat format : StorageFormat.values()) {
+            for (boolean isJournaled : new boolean[] {false, true}) {
+                String file = tempDir.resolve("candy-" + format + "-" + isJournaled + ".txt").toString();
+                StorageConfig config = journaled(Long.MAX_VALUE);
+                config.isJournaled = isJournaled;
+                config.format = format;
+                Candy candy = new Candy(file, config);
+                candy.getResponse("todo read book");
+                candy.getResponse("todo return book");
+                candy.getResponse("todo buy milk");
+                candy.getResponse("delete #1");
+                candy.getResponse("delete #3");
+                candy.getResponse("bye");
+
+                Candy reloaded = new Candy(file, config);
+                assertEquals("Nice! I've marked this task as done:\n[T][X] return book",
+                        reloaded.getResponse("mark #2"));
+                assertEquals("Task #3 does not exist.", reloaded.getResponse("mark #3"));
+                reloaded.getResponse("todo write report");
+                assertEquals("Nice! I've marked this task as done:\n[T][X] write report",
+                        reloaded.getResponse("mark #4"));
+            }
+        }
+    }
+
+    @Test
+    public void journal_olderFilesWithoutIds_stillLoadAndReplay() throws Exception {
+        Files.write(tempDir.resolve("candy.txt"), List.of("# 1", "T | 0 | read book", "T | 0 | return book",
+                "T | 0 | buy milk"));
+        Files.write(tempDir.resolve("candy.txt.journal"), List.of("2 | M | 2", "3 | X | 0",
+                "4 | A | T | 0 | write report"));
+
+        TaskList tasks = load(new Storage(tempDir.resolve("candy.txt").toString(), journaled(Long.MAX_VALUE)));
+        assertEquals(List.of("2 | T | 0 | return book", "3 | T | 1 | buy milk", "4 | T | 0 | write report"),
+                savedLines(tasks));
+    }
+
+    @Test
+    public void ids_largeSavedId_findSearchAndFilterStillWork() throws Exception {
+        Path file = tempDir.resolve("candy.txt");
+        Files.write(file, List.of("5 | T | 0 | hello there", "999999999 | T | 0 | hello world"));
+        Candy candy = new Candy(file.toString(), journaled(Long.MAX_VALUE));
+
+        String found = candy.getResponse("find hello");
+        assertTrue(found.contains("hello there") && found.contains("hello world"), found);
+        String searched = candy.getResponse("search helo world");
+        assertTrue(searched.contains("1. [T][ ] hello world (#999999999, "), searched);
+        String filtered = candy.getResponse("filter world type:todo");
+        assertTrue(filtered.contains("hello world") && !filtered.contains("hello there"), filtered);
+
+        candy.getResponse("todo hello again");
+        assertEquals("Nice! I've marked this task as done:\n[T][X] hello again",
+                candy.getResponse("mark #1000000000"));
+        assertTrue(candy.getResponse("find again").contains("hello again"));
+    }
+
+    @Test
+    public void undoRedo_eitherMode_persistRestoredList() throws Exception {
+        for (boolean isJournaled : new boolean[] {false, true}) {
+            Path dir = Files.createDirectories(tempDir.resolve("journal-" + isJournaled));
+            String file = dir.resolve("candy.txt").toString();
+            StorageConfig config = isJournaled ? journaled(Long.MAX_VALUE) : new StorageConfig();
+            Candy candy = new Candy(file, config);
+            candy.getResponse("todo read book");
+            candy.getResponse("todo return book");
+            candy.getResponse("mark 1");
+
+            assertEquals("There is nothing to redo.", candy.getResponse("redo"));
+            candy.getResponse("delete 1");
+            assertEquals("Undone. I've put your list back the way it was before your last change.\n"
+                    + "Now you have 2 tasks in the list.", candy.getResponse("undo"));
+            assertEquals(candy.getResponse("list"), new Candy(file, config).getResponse("list"));
+            assertFalse(Files.exists(dir.resolve("candy.txt.journal")));
+
+            candy.getResponse("undo");
+            candy.getResponse("redo");
+            candy.getResponse("todo after redo");
+            assertEquals(candy.getResponse("list"), new Candy(file, config).getResponse("list"));
+            assertTrue(candy.getResponse("list").contains("1. [T][X] read book"));
+        }
+    }
+
+    @Test
+    public void executeBatch_journal_savesOneSnapshotAndDropsJournal() throws Exception {
+        String file = tempDir.resolve("candy.txt").toString();
+        Candy candy = new Candy(file, journaled(Long.MAX_VALUE));
+        candy.getResponse("todo before script");
+        assertTrue(Files.exists(tempDir.resolve("candy.txt.journal")));
+
+        String output = candy.executeBatch(List.of("todo read book", "mark 2", "blah", "delete 9",
+                "deadline return book /by 2026-01-20", "bye", "todo after bye"));
+
+        assertEquals("Got it. I've added this task:\n[T][ ] read book\nNow you have 2 tasks in the list.\n"
+                + "Nice! I've marked this task as done:\n[T][X] read book\n"
+                + candy.getResponse("blah") + "\n"
+                + "Task number does not exist.\n"
+                + "Got it. I've added this task:\n[D][ ] return book (by: Jan 20 2026)\n"
+                + "Now you have 3 tasks in the list.\n"
+                + "Bye. Hope to see you again soon!\n", output);
+        assertFalse(Files.exists(tempDir.resolve("candy.txt.journal")));
+        assertEquals(List.of("# 1 4", "1 | T | 0 | before script", "2 | T | 1 | read book",
+                "3 | D | 0 | return book | 2026-01-20"), Files.readAllLines(tempDir.resolve("candy.txt")));
+
+        candy.getResponse("delete 1");
+        Candy reloaded = new Candy(file, journaled(Long.MAX_VALUE));
+        assertEquals(candy.getResponse("list"), reloaded.getResponse("list"));
+    }
+
+    @Test
+    public void lazyLoad_decodesOnUseAndWritesUntouchedLinesBack() throws Exception {
+        Path file = tempDir.resolve("candy.txt");
+        Files.write(file, List.of(
+                "T|0|read   book",
+                "D | 0 | return book | 2026-01-20",
+                "Q | 0 | unknown type",
+                "E | 0 | project meeting | Mon 2pm | Mon 4pm"));
+        StorageConfig config = new StorageConfig();
+        config.isLazy = true;
+        Candy candy = new Candy(file.toString(), config);
+
+        assertTrue(candy.getResponse("find meeting").contains("[E][ ] project meeting (from: Mon 2pm to: Mon 4pm)"));
+        assertTrue(candy.getResponse("sort").contains("[D][ ] return book"));
+        candy.getResponse("mark 2");
+        candy.getResponse("bye");
+
+        assertEquals(List.of(
+                "# 0 4",
+                "1 | T|0|read   book",
+                "2 | D | 1 | return book | 2026-01-20",
+                "3 | E | 0 | project meeting | Mon 2pm | Mon 4pm"), Files.readAllLines(file));
+        Candy eager = new Candy(file.toString(), new StorageConfig());
+        assertEquals(eager.getResponse("list"), new Candy(file.toString(), config).getResponse("list"));
+    }
+
+    @Test
+    public void loadTasks_parallelChunks_keepOrderAndReportBadLines() throws Exception {
+        Path file = tempDir.resolve("candy.txt");
+        List<String> lines = new ArrayList<>();
+        lines.add("# 7");
+        for (int i = 0; i < 60_000; i++) {
+            lines.add(i % 3 == 0 ? "T | 0 | read book " + i
+                    : i % 3 == 1 ? "D | 1 | return book " + i + " | 2026-01-20"
+                    : "E | 0 | meeting " + i + " | Mon 2pm | Mon 4pm");
+        }
+        lines.set(12_345, "D | 0 | bad date | 2026-02-30");
+        lines.set(50_001, "garbage");
+        Files.write(file, lines);
+        assertTrue(Files.size(file) > TaskFileLoader.PARALLEL_MIN_BYTES);
+
+        StorageConfig sequential = journaled(Long.MAX_VALUE);
+        sequential.loadParallelism = 1;
+        TaskList expected = new TaskList();
+        LoadStats expectedStats = new Storage(file.toString(), sequential).loadTasks(expected);
+
+        StorageConfig parallel = journaled(Long.MAX_VALUE);
+        parallel.loadParallelism = 4;
+        TaskList tasks = new TaskList();
+        LoadStats stats = new Storage(file.toString(), parallel).loadTasks(tasks);
+
+        assertEquals(List.of(
+                "line 12346: Date must be yyyy-mm-dd (example: 2019-10-15)",
+                "line 50002: not a saved task: garbage"), stats.getProblems());
+        assertEquals(expectedStats.getProblems(), stats.getProblems());
+        assertEquals(59_998, tasks.size());
+        assertEquals(expected.toLines(), tasks.toLines());
+        assertEquals(lines.size(), stats.getLineCount());
+
+        StorageConfig lazy = journaled(Long.MAX_VALUE);
+        lazy.loadParallelism = 4;
+        lazy.isLazy = true;
+        TaskList lazyTasks = new TaskList();
+        LoadStats lazyStats = new Storage(file.toString(), lazy).loadTasks(lazyTasks);
+        assertEquals(expectedStats.getProblems(), lazyStats.getProblems());
+        assertEquals(expected.toLines(), lazyTasks.toLines());
+    }
+}
@@ -1,8 +1,18 @@
 package candy;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TaskListTest {
     @Test
@@ -25,4 +35,377 @@ public class TaskListTest {
 
         assertEquals(2, list.size());
     }
-}
\ No newline at end of file
+
+    private static List<String> scan(List<Task> tasks, String keyword) {
+        List<String> lines = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.getDescription().toLowerCase().contains(keyword.toLowerCase())) {
+                lines.add(Parser.toLine(task));
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void find_matchesLinearScanAcrossAddsAndRemoves() throws Exception {
+        String[] words = {"read", "book", "Return", "BOOKS", "meeting", "bookshelf", "ab", "café"};
+        Random random = new Random(42);
+        TaskList list = new TaskList();
+        List<Task> expected = new ArrayList<>();
+        String[] queries = {"book", "BOOK", "ok s", "ead", "café", "xyz", "ab", "k", "read book", "e"};
+
+        for (int round = 0; round < 500; round++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                Task task = new Todo(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+                list.add(task);
+                expected.add(task);
+            } else {
+                int index = random.nextInt(expected.size());
+                list.remove(index);
+                expected.remove(index);
+            }
+
+            if (round % 25 == 0) {
+                for (String query : queries) {
+                    assertEquals(scan(expected, query), list.find(query).toLines(), query);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void filter_everyPlan_matchesScanAcrossChanges() throws Exception {
+        String[] words = {"report", "read", "book", "team", "sync", "zebra"};
+        String[] conditions = {
+            "type:deadline undone before:2026-03-01 report",
+            "type:deadline and (done or on:2026-02-10)",
+            "after:2026-02-20 not book",
+            "zebra and not type:todo",
+            "\"read book\" or type:event",
+            "not done and (team or sync)",
+        };
+        List<TaskFilter> filters = new ArrayList<>();
+        for (String condition : conditions) {
+            filters.add(TaskFilter.parse(condition));
+        }
+        Random random = new Random(23);
+        TaskList list = new TaskList();
+        List<Task> expected = new ArrayList<>();
+
+        for (int round = 0; round < 1500; round++) {
+            int action = random.nextInt(10);
+            if (expected.isEmpty() || action < 6) {
+                String description = words[random.nextInt(words.length - 1)] + " " + words[random.nextInt(
+                        random.nextInt(20) == 0 ? words.length : words.length - 1)];
+                int type = random.nextInt(3);
+                Task task = type == 0 ? new Todo(description)
+                        : type == 1 ? new Deadline(description, LocalDate.parse("2026-01-01").plusDays(random.nextInt(90)))
+                        : new Event(description, "Mon", "Tue");
+                list.add(task);
+                expected.add(task);
+            } else if (action < 8) {
+                int index = random.nextInt(expected.size());
+                list.mark(index);
+                expected.set(index, expected.get(index).withDone(true));
+            } else {
+                int index = random.nextInt(expected.size());
+                list.remove(index);
+                expected.remove(index);
+            }
+
+            if (round % 100 == 0) {
+                for (int i = 0; i < filters.size(); i++) {
+                    List<String> lines = new ArrayList<>();
+                    for (Task task : expected) {
+                        if (filters.get(i).matches(task)) {
+                            lines.add(Parser.toLine(task));
+                        }
+                    }
+                    assertEquals(lines, list.filter(filters.get(i)).toLines(), conditions[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void search_typoAndWordOrder_ranksClosestFirstAndSkipsRemoved() throws Exception {
+        TaskList list = new TaskList();
+        list.add(new Todo("water the plants"));
+        list.add(new Todo("return library book"));
+        list.add(new Todo("book dentist appointment"));
+        list.add(new Todo("return library books"));
+        list.add(new Todo("buy milk"));
+        list.remove(3);
+
+        List<SearchResult> results = list.search("Libary book retrun", 5);
+        assertEquals(1, results.size());
+        assertEquals("return library book", results.get(0).getTask().getDescription());
+
+        list.add(new Todo("return the library book"));
+        results = list.search("library book return", 2);
+        assertEquals(2, results.size());
+        assertEquals("return library book", results.get(0).getTask().getDescription());
+        assertEquals("return the library book", results.get(1).getTask().getDescription());
+        assertTrue(results.get(0).getScore() > results.get(1).getScore());
+        assertEquals(0, list.search("xyzzy", 5).size());
+    }
+
+    @Test
+    public void formatSortedForDisplay_keepsDateOrderThroughChanges() throws Exception {
+        TaskList list = new TaskList();
+        list.add(new Deadline("b", LocalDate.parse("2026-02-01")));
+        list.add(new Todo("read book"));
+        list.add(new Deadline("a", LocalDate.parse("2026-01-01")));
+        list.add(new Event("meeting", "Mon 2pm", "Mon 4pm"));
+        list.add(new Deadline("c", LocalDate.parse("2026-02-01")));
+        list.formatSortedForDisplay();
+
+        list.add(new Deadline("d", LocalDate.parse("2025-12-31")));
+        list.mark(2);
+        list.remove(0);
+
+        String expected = " ~~Incomplete Urgent Tasks~~ \n"
+                + "- [D][ ] d (by: Dec 31 2025)\n"
+                + "- [D][ ] c (by: Feb 01 2026)\n"
+                + "\n ~~Completed Deadlines~~ \n"
+                + "- [D][X] a (by: Jan 01 2026)\n"
+                + "\n ~~Todos~~ \n"
+                + "- [T][ ] read book\n"
+                + "\n ~~Events~~ \n"
+                + "- [E][ ] meeting (from: Mon 2pm to: Mon 4pm)\n";
+        assertEquals(expected, list.formatSortedForDisplay());
+
+        list.unmark(1);
+        list.mark(3);
+        list.mark(0);
+        expected = " ~~Incomplete Urgent Tasks~~ \n"
+                + "- [D][ ] d (by: Dec 31 2025)\n"
+                + "- [D][ ] a (by: Jan 01 2026)\n"
+                + "\n ~~Completed Deadlines~~ \n"
+                + "- [D][X] c (by: Feb 01 2026)\n"
+                + "\n ~~Todos~~ \n"
+                + "- [T][X] read book\n"
+                + "\n ~~Events~~ \n"
+                + "- [E][ ] meeting (from: Mon 2pm to: Mon 4pm)\n";
+        assertEquals(expected, list.formatSortedForDisplay());
+    }
+
+    @Test
+    public void listAndFind_withPaging_showOnlyRequestedPage() throws Exception {
+        TaskList list = new TaskList();
+        for (int i = 1; i <= 45; i++) {
+            list.add(new Todo("task " + i + (i % 2 == 0 ? " book" : "")));
+        }
+        Ui ui = new Ui();
+
+        String page = Parser.parse("list 3").execute(list, ui, null);
+        assertEquals("Here are your tasks (page 3 of 3, tasks 41-45 of 45):\n"
+                + "41. [T][ ] task 41\n"
+                + "42. [T][ ] task 42 book\n"
+                + "43. [T][ ] task 43\n"
+                + "44. [T][ ] task 44 book\n"
+                + "45. [T][ ] task 45\n", page);
+
+        page = Parser.parse("find  task 1 --page-size 2 --page 2").execute(list, ui, null);
+        assertEquals("Here are the matching tasks in your list (page 2 of 6, tasks 3-4 of 11):\n"
+                + "3. [T][ ] task 11\n"
+                + "4. [T][ ] task 12 book\n", page);
+
+        StringBuilder streamed = new StringBuilder();
+        Parser.parse("list").executeTo(list, ui, null, streamed);
+        assertEquals(ui.getListText(list), streamed.toString());
+        assertEquals("Here are your tasks:\n" + list.formatForDisplay(), streamed.toString());
+
+        assertThrows(CandyException.class, () -> Parser.parse("list 4").execute(list, ui, null));
+        assertThrows(CandyException.class, () -> Parser.parse("list --page-size 0"));
+        assertThrows(CandyException.class, () -> Parser.parse("find --page 2"));
+    }
+
+    @Test
+    public void removeAndLookup_manyDeletes_matchArrayListModel() throws Exception {
+        TaskList list = new TaskList();
+        List<Task> model = new ArrayList<>();
+        Random random = new Random(8);
+
+        for (int step = 0; step < 20000; step++) {
+            if (model.isEmpty() || random.nextInt(3) > 0 && model.size() < 500) {
+                Task task = new Todo("task " + step);
+                list.add(task);
+                model.add(task);
+            } else {
+                int index = random.nextInt(model.size());
+                Task expected = model.remove(index);
+                Task removed = random.nextBoolean() ? list.remove(index) : list.removeById(expected.getId());
+                assertEquals(expected, removed);
+            }
+            if (!model.isEmpty()) {
+                int index = random.nextInt(model.size());
+                Task task = model.get(index);
+                assertEquals(task, list.get(index));
+                assertEquals(task, list.getById(task.getId()));
+                assertEquals(index, list.indexOf(task.getId()));
+            }
+        }
+
+        assertEquals(model, list.snapshot());
+        assertThrows(CandyException.class, () -> list.getById(-1));
+    }
+
+    @Test
+    public void undoRedo_randomChanges_restoreEveryVersionAndIndex() throws Exception {
+        TaskList list = new TaskList();
+        list.add(new Todo("loaded book"));
+        list.setHistoryLimit(1000);
+        List<List<Task>> versions = new ArrayList<>();
+        versions.add(list.snapshot());
+        Random random = new Random(25);
+
+        for (int step = 0; step < 600; step++) {
+            int size = list.size();
+            int choice = random.nextInt(5);
+            if (size < 2 || choice == 0) {
+                list.add(new Todo("task " + step + (step % 3 == 0 ? " book" : "")));
+            } else if (choice == 1) {
+                int first = random.nextInt(size - 1);
+                list.removeAll(new int[] {first, first + 1 + random.nextInt(size - 1 - first)});
+            } else if (choice == 2) {
+                list.markAll(new int[] {random.nextInt(size)});
+            } else if (choice == 3) {
+                list.remove(random.nextInt(size));
+            } else {
+                list.add(new Deadline("due " + step + " book", LocalDate.of(2026, 1, 1 + random.nextInt(28))));
+            }
+            // Marking a task that is already done changes nothing, so there is nothing to undo.
+            if (!list.snapshot().equals(versions.get(versions.size() - 1))) {
+                versions.add(list.snapshot());
+            }
+            list.find("book");
+        }
+
+        for (int i = versions.size() - 2; i >= 0; i--) {
+            list.undo();
+            assertEquals(versions.get(i), list.snapshot());
+            assertEquals(scan(versions.get(i), "book"), list.find("book").toLines());
+        }
+        assertThrows(CandyException.class, list::undo);
+        for (int i = 1; i < versions.size(); i++) {
+            list.redo();
+            assertEquals(versions.get(i), list.snapshot());
+        }
+        assertEquals(scan(list.snapshot(), "book"), list.find("book").toLines());
+        assertThrows(CandyException.class, list::redo);
+    }
+
+    @Test
+    public void undo_depthLimitAndNewChange_boundWhatCanBeTakenBack() throws Exception {
+        TaskList list = new TaskList();
+        list.add(new Todo("loaded"));
+        list.setHistoryLimit(2);
+        assertThrows(CandyException.class, list::undo);
+
+        list.add(new Todo("one"));
+        list.add(new Todo("two"));
+        list.add(new Todo("three"));
+        list.undo();
+        list.undo();
+        assertEquals(2, list.size());
+        assertThrows(CandyException.class, list::undo);
+
+        list.redo();
+        list.mark(0);
+        assertThrows(CandyException.class, list::redo);
+        list.undo();
+        assertEquals("[T][ ] loaded", list.get(0).toString());
+        assertEquals(3, list.size());
+        list.add(new Todo("four"));
+        assertTrue(list.get(3).getId() > 4, "IDs of undone tasks were handed out again");
+    }
+
+    private static void change(TaskList list, Random random, int writer, int step) {
+        try {
+            switch (random.nextInt(6)) {
+            case 0:
+                list.add(new Deadline("w" + writer + " due " + step, LocalDate.of(2026, 1, 1 + random.nextInt(28))));
+                break;
+            case 1:
+                list.remove(random.nextInt(Math.max(list.size(), 1)));
+                break;
+            case 2:
+                list.mark(random.nextInt(Math.max(list.size(), 1)));
+                break;
+            case 3:
+                list.unmarkAll(new int[] {0, 1, 2});
+                break;
+            default:
+                list.add(new Todo("w" + writer + " task " + step + (step % 2 == 0 ? " book" : "")));
+                break;
+            }
+        } catch (CandyException e) {
+            // Another writer shrank the list after the index was picked.
+        }
+    }
+
+    private static void checkConsistent(TaskList list) {
+        List<Task> snapshot = list.snapshot();
+        for (int i = 1; i < snapshot.size(); i++) {
+            assertTrue(snapshot.get(i - 1).getId() < snapshot.get(i).getId(), "IDs out of order");
+        }
+
+        String[] lines = list.formatForDisplay().split("\n");
+        for (int i = 0; i < lines.length && !lines[0].startsWith("Your task list"); i++) {
+            assertTrue(lines[i].startsWith((i + 1) + ". ["), lines[i]);
+        }
+
+        for (Task task : list.find("book").snapshot()) {
+            assertTrue(task.getDescription().contains("book"), task.toString());
+        }
+
+        String sorted = list.formatSortedForDisplay();
+        int completed = sorted.indexOf("~~Completed Deadlines~~");
+        int todos = sorted.indexOf("~~Todos~~");
+        if (completed >= 0) {
+            assertTrue(!sorted.substring(0, completed).contains("[D][X]"), sorted);
+            assertTrue(!sorted.substring(completed, todos).contains("[D][ ]"), sorted);
+        }
+    }
+
+    @Test
+    public void concurrentReadersAndWriters_readersAlwaysSeeWholeChanges() throws Exception {
+        TaskList list = new TaskList();
+        for (int i = 0; i < 200; i++) {
+            list.add(new Todo("seed " + i + " book"));
+        }
+        list.find("book");
+        list.formatSortedForDisplay();
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                Random random = new Random(thread);
+                for (int step = 0; step < 3000; step++) {
+                    if (thread % 2 == 0) {
+                        change(list, random, thread, step);
+                    } else if (step % 10 == 0) {
+                        checkConsistent(list);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+
+        checkConsistent(list);
+        TaskList rebuilt = new TaskList();
+        for (Task task : list.snapshot()) {
+            rebuilt.add(task.withDone(task.isDone()));
+        }
+        assertEquals(rebuilt.formatSortedForDisplay(), list.formatSortedForDisplay());
+        assertEquals(scan(list.snapshot(), "book"), list.find("book").toLines());
+    }
+}